@@ -0,0 +1,340 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.cache/HashCache.java
+ *
+ *			Modified: 20-Oct-2026 (07:06:31)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.cache;
+
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+import com.yagasoft.logger.Logger;
+import com.yagasoft.overcast.base.container.local.LocalFile;
+import com.yagasoft.overcast.base.container.remote.RemoteFile;
+
+
+/**
+ * Content hashes of local files, persisted in a {@link RecordLog}, and keyed by the absolute path. A hash is reused as
+ * long as the size and modification time of the file are the same as when it was computed; else, the file is read and
+ * hashed again. So, re-scanning a tree reads only the files that changed.<br />
+ * Entries of files that no longer exist are dropped when the log is compacted.
+ */
+public class HashCache extends RecordLog<String, HashCache.Entry>
+{
+	
+	/** Size of the buffer used to read files. */
+	private static final int	BUFFER_SIZE	= 64 * 1024;
+	
+	/** Hash algorithm, as named by {@link MessageDigest}. */
+	protected final String		algorithm;
+	
+	/**
+	 * Instantiates a new hash cache using MD5 (what most servers keep for each file).
+	 *
+	 * @param file
+	 *            the log file
+	 * @see #open()
+	 */
+	public HashCache(Path file)
+	{
+		this(file, "MD5");
+	}
+	
+	/**
+	 * Instantiates a new hash cache. Hashes in the log that were computed with another algorithm are ignored.
+	 *
+	 * @param file
+	 *            the log file
+	 * @param algorithm
+	 *            the hash algorithm, as named by {@link MessageDigest}
+	 * @see #open()
+	 */
+	public HashCache(Path file, String algorithm)
+	{
+		super(file);
+		this.algorithm = algorithm;
+	}
+	
+	/**
+	 * Checks the algorithm is supported before reading the log.
+	 *
+	 * @throws IOException
+	 *             the log couldn't be read or opened for writing, or the algorithm isn't supported
+	 * @see com.yagasoft.overcast.base.cache.RecordLog#open()
+	 */
+	@Override
+	public synchronized void open() throws IOException
+	{
+		try
+		{
+			MessageDigest.getInstance(algorithm);
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IOException("Hash algorithm not supported: " + algorithm);
+		}
+		
+		super.open();
+	}
+	
+	/**
+	 * Drops the entries of the files that no longer exist.
+	 *
+	 * @see com.yagasoft.overcast.base.cache.RecordLog#compacting()
+	 */
+	@Override
+	protected void compacting()
+	{
+		entries.keySet().removeIf(path -> !Files.exists(Paths.get(path)));
+	}
+	
+	/**
+	 * Gets the hash of the file, from the cache if the file hasn't changed; else, it reads the file and caches the hash.
+	 *
+	 * @param path
+	 *            the file
+	 * @return the hash, in lower-case hex
+	 * @throws IOException
+	 *             the file couldn't be read, or the hash couldn't be cached
+	 */
+	public String getHash(Path path) throws IOException
+	{
+		path = path.toAbsolutePath();
+		BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		long size = attributes.size();
+		long modified = attributes.lastModifiedTime().toMillis();
+		
+		String hash = getCachedHash(path, size, modified);
+		
+		if (hash != null)
+		{
+			return hash;
+		}
+		
+		Logger.info("OVERCAST: HASHCACHE: hashing: " + path);
+		
+		hash = computeHash(path);
+		put(path.toString(), new Entry(size, modified, algorithm, hash));
+		
+		return hash;
+	}
+	
+	/**
+	 * Gets the hash of the file.
+	 *
+	 * @param file
+	 *            the file
+	 * @return the hash, in lower-case hex
+	 * @throws IOException
+	 *             the file couldn't be read, or the hash couldn't be cached
+	 * @see #getHash(Path)
+	 */
+	public String getHash(LocalFile file) throws IOException
+	{
+		return getHash(file.getSourceObject());
+	}
+	
+	/**
+	 * Gets the hash from the cache only, if it was computed for the same size and modification time.
+	 *
+	 * @param path
+	 *            the file
+	 * @param size
+	 *            the size of the file
+	 * @param modified
+	 *            the modification time (ms since 1970)
+	 * @return the hash, or null if not cached, or the file changed since
+	 */
+	public String getCachedHash(Path path, long size, long modified)
+	{
+		Entry entry = get(path.toAbsolutePath().toString());
+		
+		if ((entry == null) || (entry.size != size) || (entry.modified != modified) || !entry.algorithm.equals(algorithm))
+		{
+			return null;
+		}
+		
+		return entry.hash;
+	}
+	
+	/**
+	 * Creates a comparator to be used by the sync classes (e.g.
+	 * {@link com.yagasoft.overcast.base.sync.TreeDiff#setHashComparator(BiPredicate)}), which compares the hash of the
+	 * local file from this cache with the remote file's.
+	 *
+	 * @param remoteHash
+	 *            gets the hash of the remote file as kept by the server (same algorithm); it may return null if unknown
+	 * @return the comparator; it returns false if either hash isn't available
+	 */
+	public BiPredicate<LocalFile, RemoteFile<?>> comparator(Function<RemoteFile<?>, String> remoteHash)
+	{
+		return (localFile, remoteFile) ->
+		{
+			String hash = remoteHash.apply(remoteFile);
+			
+			if (hash == null)
+			{
+				return false;
+			}
+			
+			try
+			{
+				return hash.equalsIgnoreCase(getHash(localFile));
+			}
+			catch (IOException e)
+			{
+				Logger.error("OVERCAST: HASHCACHE: failed to hash: " + localFile.getPath());
+				Logger.except(e);
+				return false;
+			}
+		};
+	}
+	
+	/**
+	 * Reads the file and computes its hash.
+	 */
+	protected String computeHash(Path path) throws IOException
+	{
+		MessageDigest digest;
+		
+		try
+		{
+			digest = MessageDigest.getInstance(algorithm);
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IOException(e.getMessage());
+		}
+		
+		byte[] buffer = new byte[BUFFER_SIZE];
+		
+		try (InputStream input = Files.newInputStream(path))
+		{
+			for (int read = input.read(buffer); read >= 0; read = input.read(buffer))
+			{
+				digest.update(buffer, 0, read);
+			}
+		}
+		
+		StringBuilder hex = new StringBuilder();
+		
+		for (byte b : digest.digest())
+		{
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		
+		return hex.toString();
+	}
+	
+	// --------------------------------------------------------------------------------------
+	// #region Serialisation.
+	
+	@Override
+	protected void writeKey(DataOutput output, String key) throws IOException
+	{
+		output.writeUTF(key);
+	}
+	
+	@Override
+	protected String readKey(DataInput input) throws IOException
+	{
+		return input.readUTF();
+	}
+	
+	@Override
+	protected void writeValue(DataOutput output, Entry value) throws IOException
+	{
+		output.writeLong(value.size);
+		output.writeLong(value.modified);
+		output.writeUTF(value.algorithm);
+		output.writeUTF(value.hash);
+	}
+	
+	@Override
+	protected Entry readValue(DataInput input) throws IOException
+	{
+		return new Entry(input.readLong(), input.readLong(), input.readUTF(), input.readUTF());
+	}
+	
+	// #endregion Serialisation.
+	// --------------------------------------------------------------------------------------
+	
+	/**
+	 * @return the algorithm
+	 */
+	public String getAlgorithm()
+	{
+		return algorithm;
+	}
+	
+	/**
+	 * A hash, and the state of the file when it was computed.
+	 */
+	public static final class Entry
+	{
+		
+		private final long		size;
+		private final long		modified;
+		private final String	algorithm;
+		private final String	hash;
+		
+		private Entry(long size, long modified, String algorithm, String hash)
+		{
+			this.size = size;
+			this.modified = modified;
+			this.algorithm = algorithm;
+			this.hash = hash;
+		}
+		
+		/**
+		 * @return the size of the file
+		 */
+		public long getSize()
+		{
+			return size;
+		}
+		
+		/**
+		 * @return the modification time of the file (ms since 1970)
+		 */
+		public long getModified()
+		{
+			return modified;
+		}
+		
+		/**
+		 * @return the algorithm
+		 */
+		public String getAlgorithm()
+		{
+			return algorithm;
+		}
+		
+		/**
+		 * @return the hash, in lower-case hex
+		 */
+		public String getHash()
+		{
+			return hash;
+		}
+	}
+	
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.cache/MappingIndex.java
+ *
+ *			Modified: 20-Oct-2026 (07:06:31)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.cache;
+
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.yagasoft.logger.Logger;
+import com.yagasoft.overcast.base.container.local.LocalFile;
+import com.yagasoft.overcast.base.container.remote.RemoteFile;
+
+
+/**
+ * The mappings between local and remote files, persisted in a {@link RecordLog}, and keyed by the remote ID.<br />
+ * Each mapping keeps the state of both files when they were last known to be in sync: the remote revision (or size and
+ * date), and
+ * the local size, modification time and hash. So, a new process can tell which files are still in sync by comparing this
+ * state with the one read from the trees, without hashing or transferring anything.
+ */
+public class MappingIndex extends RecordLog<String, MappingIndex.Mapping>
+{
+	
+	/** The remote IDs by local path. */
+	protected final Map<String, String>	localIndex	= new ConcurrentHashMap<String, String>();
+	
+	/** Cache to take the hash of the local file from, if set. */
+	protected HashCache					hashCache;
+	
+	/**
+	 * Instantiates a new mapping index.
+	 *
+	 * @param file
+	 *            the log file
+	 * @see #open()
+	 */
+	public MappingIndex(Path file)
+	{
+		super(file);
+	}
+	
+	/**
+	 * Indexes the mappings read by local path.
+	 *
+	 * @see com.yagasoft.overcast.base.cache.RecordLog#loaded()
+	 */
+	@Override
+	protected void loaded()
+	{
+		localIndex.clear();
+		
+		for (Mapping mapping : entries.values())
+		{
+			localIndex.put(mapping.localPath, mapping.remoteId);
+		}
+	}
+	
+	// --------------------------------------------------------------------------------------
+	// #region Mappings.
+	
+	/**
+	 * Records the files as in sync, using the current state of the local file on the disk, and the remote file's info.
+	 *
+	 * @param localFile
+	 *            the local file
+	 * @param remoteFile
+	 *            the remote file
+	 * @throws IOException
+	 *             the local file couldn't be read, or the mapping couldn't be written
+	 */
+	public void record(LocalFile localFile, RemoteFile<?> remoteFile) throws IOException
+	{
+		Path path = localFile.getSourceObject().toAbsolutePath();
+		BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		long size = attributes.size();
+		long modified = attributes.lastModifiedTime().toMillis();
+		String hash = (hashCache == null) ? null : hashCache.getCachedHash(path, size, modified);
+		
+		put(remoteFile.getId(), new Mapping(remoteFile.getId(), remoteFile.getRevision(), remoteFile.getSize(),
+				remoteFile.getDate(), path.toString(), size, modified, hash));
+	}
+	
+	/**
+	 * Checks if the files are still in sync since their mapping was recorded: same local path, size and modification
+	 * time, and same remote revision (or size and date, if the server doesn't give revisions).<br />
+	 * If they are, the in-memory mapping between the two objects is restored as well.
+	 *
+	 * @param localFile
+	 *            the local file, with its info loaded
+	 * @param remoteFile
+	 *            the remote file, with its info loaded
+	 * @return true, if in sync
+	 */
+	public boolean isInSync(LocalFile localFile, RemoteFile<?> remoteFile)
+	{
+		Mapping mapping = get(remoteFile.getId());
+		
+		if ((mapping == null) || !mapping.localPath.equals(localFile.getSourceObject().toAbsolutePath().toString()))
+		{
+			return false;
+		}
+		
+		boolean inSync = isUnchanged(mapping, localFile) && isUnchanged(mapping, remoteFile);
+		
+		if (inSync)
+		{
+			localFile.setRemoteMapping(remoteFile);
+			remoteFile.setLocalMapping(localFile);
+		}
+		
+		return inSync;
+	}
+	
+	/**
+	 * Checks if the local file is the same as when the mapping was recorded: same size and modification time.
+	 *
+	 * @param mapping
+	 *            the mapping
+	 * @param localFile
+	 *            the local file, with its info loaded
+	 * @return true, if unchanged
+	 */
+	public static boolean isUnchanged(Mapping mapping, LocalFile localFile)
+	{
+		return (mapping.localSize == localFile.getSize()) && (mapping.localModified == localFile.getDate());
+	}
+	
+	/**
+	 * Checks if the remote file is the same as when the mapping was recorded: same revision, or same size and date if
+	 * either has no revision.
+	 *
+	 * @param mapping
+	 *            the mapping
+	 * @param remoteFile
+	 *            the remote file, with its info loaded
+	 * @return true, if unchanged
+	 */
+	public static boolean isUnchanged(Mapping mapping, RemoteFile<?> remoteFile)
+	{
+		if ((mapping.revision != null) && (remoteFile.getRevision() != null))
+		{
+			return mapping.revision.equals(remoteFile.getRevision());
+		}
+		
+		return (mapping.remoteSize == remoteFile.getSize()) && (mapping.remoteDate == remoteFile.getDate());
+	}
+	
+	/**
+	 * Gets the mapping of the remote file.
+	 *
+	 * @param remoteId
+	 *            the remote ID
+	 * @return the mapping, or null if not recorded
+	 */
+	public Mapping getByRemoteId(String remoteId)
+	{
+		return get(remoteId);
+	}
+	
+	/**
+	 * Gets the mapping of the local file.
+	 *
+	 * @param path
+	 *            the local path
+	 * @return the mapping, or null if not recorded
+	 */
+	public Mapping getByLocalPath(Path path)
+	{
+		String remoteId = localIndex.get(path.toAbsolutePath().toString());
+		return (remoteId == null) ? null : get(remoteId);
+	}
+	
+	/**
+	 * Forgets the mapping of the remote file (e.g. it was deleted), logging if it couldn't be written.
+	 *
+	 * @param remoteId
+	 *            the remote ID
+	 */
+	public void forget(String remoteId)
+	{
+		try
+		{
+			remove(remoteId);
+		}
+		catch (IOException e)
+		{
+			Logger.error("OVERCAST: MAPPINGINDEX: failed to forget: " + remoteId);
+			Logger.except(e);
+		}
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.cache.RecordLog#put(java.lang.Object, java.lang.Object)
+	 */
+	@Override
+	public synchronized void put(String key, Mapping value) throws IOException
+	{
+		Mapping old = get(key);
+		
+		super.put(key, value);
+		
+		if (old != null)
+		{
+			localIndex.remove(old.localPath, key);
+		}
+		
+		localIndex.put(value.localPath, key);
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.cache.RecordLog#remove(java.lang.Object)
+	 */
+	@Override
+	public synchronized void remove(String key) throws IOException
+	{
+		Mapping old = get(key);
+		
+		super.remove(key);
+		
+		if (old != null)
+		{
+			localIndex.remove(old.localPath, key);
+		}
+	}
+	
+	// #endregion Mappings.
+	// --------------------------------------------------------------------------------------
+	
+	// --------------------------------------------------------------------------------------
+	// #region Serialisation.
+	
+	@Override
+	protected void writeKey(DataOutput output, String key) throws IOException
+	{
+		output.writeUTF(key);
+	}
+	
+	@Override
+	protected String readKey(DataInput input) throws IOException
+	{
+		return input.readUTF();
+	}
+	
+	@Override
+	protected void writeValue(DataOutput output, Mapping value) throws IOException
+	{
+		output.writeUTF(value.remoteId);
+		output.writeUTF((value.revision == null) ? "" : value.revision);
+		output.writeLong(value.remoteSize);
+		output.writeLong(value.remoteDate);
+		output.writeUTF(value.localPath);
+		output.writeLong(value.localSize);
+		output.writeLong(value.localModified);
+		output.writeUTF((value.hash == null) ? "" : value.hash);
+	}
+	
+	@Override
+	protected Mapping readValue(DataInput input) throws IOException
+	{
+		String remoteId = input.readUTF();
+		String revision = input.readUTF();
+		long remoteSize = input.readLong();
+		long remoteDate = input.readLong();
+		String localPath = input.readUTF();
+		long localSize = input.readLong();
+		long localModified = input.readLong();
+		String hash = input.readUTF();
+		
+		return new Mapping(remoteId, revision.isEmpty() ? null : revision, remoteSize, remoteDate,
+				localPath, localSize, localModified, hash.isEmpty() ? null : hash);
+	}
+	
+	// #endregion Serialisation.
+	// --------------------------------------------------------------------------------------
+	
+	// //////////////////////////////////////////////////////////////////////////////////////
+	// #region Getters and setters.
+	// ======================================================================================
+	
+	/**
+	 * @return the hashCache
+	 */
+	public HashCache getHashCache()
+	{
+		return hashCache;
+	}
+	
+	/**
+	 * @param hashCache
+	 *            the cache to take the hash of the local file from when recording; it's never hashed here
+	 */
+	public void setHashCache(HashCache hashCache)
+	{
+		this.hashCache = hashCache;
+	}
+	
+	// ======================================================================================
+	// #endregion Getters and setters.
+	// //////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * The state of a local and a remote file when they were last known to be in sync.
+	 */
+	public static final class Mapping
+	{
+		
+		private final String	remoteId;
+		private final String	revision;
+		private final long		remoteSize;
+		private final long		remoteDate;
+		private final String	localPath;
+		private final long		localSize;
+		private final long		localModified;
+		private final String	hash;
+		
+		private Mapping(String remoteId, String revision, long remoteSize, long remoteDate,
+				String localPath, long localSize, long localModified, String hash)
+		{
+			this.remoteId = remoteId;
+			this.revision = revision;
+			this.remoteSize = remoteSize;
+			this.remoteDate = remoteDate;
+			this.localPath = localPath;
+			this.localSize = localSize;
+			this.localModified = localModified;
+			this.hash = hash;
+		}
+		
+		/**
+		 * @return the remote ID
+		 */
+		public String getRemoteId()
+		{
+			return remoteId;
+		}
+		
+		/**
+		 * @return the remote revision; null if not given by the server
+		 */
+		public String getRevision()
+		{
+			return revision;
+		}
+		
+		/**
+		 * @return the remote size
+		 */
+		public long getRemoteSize()
+		{
+			return remoteSize;
+		}
+		
+		/**
+		 * @return the remote date (ms since 1970)
+		 */
+		public long getRemoteDate()
+		{
+			return remoteDate;
+		}
+		
+		/**
+		 * @return the absolute local path
+		 */
+		public String getLocalPath()
+		{
+			return localPath;
+		}
+		
+		/**
+		 * @return the local size
+		 */
+		public long getLocalSize()
+		{
+			return localSize;
+		}
+		
+		/**
+		 * @return the local modification time (ms since 1970)
+		 */
+		public long getLocalModified()
+		{
+			return localModified;
+		}
+		
+		/**
+		 * @return the content hash; null if it wasn't known when recorded
+		 */
+		public String getHash()
+		{
+			return hash;
+		}
+	}
+	
+}
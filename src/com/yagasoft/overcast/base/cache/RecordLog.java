@@ -0,0 +1,430 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.cache/RecordLog.java
+ *
+ *			Modified: 20-Oct-2026 (07:06:31)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.cache;
+
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.yagasoft.logger.Logger;
+
+
+/**
+ * A map kept in memory, and persisted to an append-only log on the disk: each change is a record appended to the log, and
+ * the log is read back by {@link #open()}, which must be called before using the map. When most of the records are
+ * obsolete (overwritten or removed), the log is compacted: re-written with the live entries only, and then swapped with
+ * the old one atomically.<br />
+ * A malformed record (e.g. cut short by a crash while appending) ends the log when reading: it's dropped with what
+ * follows it, and the log is compacted right away.
+ *
+ * @param <K>
+ *            the key type
+ * @param <V>
+ *            the value type
+ */
+public abstract class RecordLog<K, V> implements Closeable
+{
+	
+	/** Record that puts a value. */
+	private static final byte		PUT					= 1;
+	
+	/** Record that removes a key. */
+	private static final byte		REMOVE				= 2;
+	
+	/** Log file. */
+	protected final Path			file;
+	
+	/** The live entries. */
+	protected final Map<K, V>		entries				= new ConcurrentHashMap<K, V>();
+	
+	/** Stream appending to the log; null if closed. */
+	protected DataOutputStream		output;
+	
+	/** Number of records in the log. */
+	protected long					records;
+	
+	/** Minimum number of records before considering compaction. */
+	protected long					compactionThreshold	= 4096;
+	
+	/**
+	 * Instantiates a new record log; nothing is read until {@link #open()} is called, so sub-classes are fully
+	 * initialised before their readers are used.
+	 *
+	 * @param file
+	 *            the log file
+	 */
+	public RecordLog(Path file)
+	{
+		this.file = file;
+	}
+	
+	/**
+	 * Reads the entries from the log file if it exists, and opens it for appending. Does nothing if already open.
+	 *
+	 * @throws IOException
+	 *             the log couldn't be read or opened for writing
+	 */
+	public synchronized void open() throws IOException
+	{
+		if (output != null)
+		{
+			return;
+		}
+		
+		if (file.getParent() != null)
+		{
+			Files.createDirectories(file.getParent());
+		}
+		
+		entries.clear();
+		records = 0;
+		
+		boolean complete = read();
+		loaded();
+		
+		// a record was malformed, so don't append after it.
+		if ( !complete)
+		{
+			compact();
+		}
+		else
+		{
+			openOutput();
+		}
+	}
+	
+	// --------------------------------------------------------------------------------------
+	// #region Entries.
+	
+	/**
+	 * Gets the value mapped to the key.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the value, or null if not mapped
+	 */
+	public V get(K key)
+	{
+		return entries.get(key);
+	}
+	
+	/**
+	 * Maps the value to the key, and appends the change to the log.
+	 *
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 * @throws IOException
+	 *             the log couldn't be written
+	 */
+	public synchronized void put(K key, V value) throws IOException
+	{
+		checkOpen();
+		entries.put(key, value);
+		
+		output.writeByte(PUT);
+		writeKey(output, key);
+		writeValue(output, value);
+		appended();
+	}
+	
+	/**
+	 * Removes the key, and appends the change to the log.
+	 *
+	 * @param key
+	 *            the key
+	 * @throws IOException
+	 *             the log couldn't be written
+	 */
+	public synchronized void remove(K key) throws IOException
+	{
+		checkOpen();
+		
+		if (entries.remove(key) == null)
+		{
+			return;
+		}
+		
+		output.writeByte(REMOVE);
+		writeKey(output, key);
+		appended();
+	}
+	
+	/**
+	 * Gets the live entries.
+	 *
+	 * @return the entries (read-only)
+	 */
+	public Map<K, V> getEntries()
+	{
+		return Collections.unmodifiableMap(entries);
+	}
+	
+	/**
+	 * Makes sure the log is open.
+	 */
+	private void checkOpen() throws IOException
+	{
+		if (output == null)
+		{
+			throw new IOException("Log isn't open: " + file);
+		}
+	}
+	
+	/**
+	 * Counts a record appended, and compacts the log if most records are obsolete.
+	 */
+	private void appended() throws IOException
+	{
+		records++;
+		
+		if ((records > compactionThreshold) && (records > (entries.size() * 2L)))
+		{
+			compact();
+		}
+	}
+	
+	// #endregion Entries.
+	// --------------------------------------------------------------------------------------
+	
+	// --------------------------------------------------------------------------------------
+	// #region Log.
+	
+	/**
+	 * Reads the entries from the log, up to the first malformed record: cut short, of an unknown type, or rejected by the
+	 * readers.
+	 *
+	 * @return false if a record was malformed
+	 */
+	private boolean read() throws IOException
+	{
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+		{
+			while (true)
+			{
+				int type = input.read();
+				
+				if (type < 0)
+				{
+					return true;
+				}
+				
+				if ((type != PUT) && (type != REMOVE))
+				{
+					Logger.info("OVERCAST: RECORDLOG: unknown record type " + type + ", dropping the rest: " + file);
+					return false;
+				}
+				
+				K key = readKey(input);
+				
+				if (type == PUT)
+				{
+					entries.put(key, readValue(input));
+				}
+				else
+				{
+					entries.remove(key);
+				}
+				
+				records++;
+			}
+		}
+		catch (NoSuchFileException e)
+		{
+			return true;
+		}
+		catch (EOFException | UTFDataFormatException | RuntimeException e)
+		{
+			Logger.info("OVERCAST: RECORDLOG: malformed record, dropping the rest: " + file);
+			return false;
+		}
+	}
+	
+	/**
+	 * Called after the entries are read from the log, and before it's opened for appending; sub-classes can build
+	 * their own indices from the entries here.
+	 */
+	protected void loaded()
+	{}
+	
+	/**
+	 * Called before the log is compacted; sub-classes can drop the entries that are no longer needed here, so they're
+	 * not re-written.
+	 */
+	protected void compacting()
+	{}
+	
+	/**
+	 * Re-writes the log with the live entries only.
+	 *
+	 * @throws IOException
+	 *             the log couldn't be written
+	 */
+	public synchronized void compact() throws IOException
+	{
+		compacting();
+		
+		Logger.info("OVERCAST: RECORDLOG: compacting: " + file + ", records: " + records + ", live: " + entries.size());
+		
+		if (output != null)
+		{
+			output.close();
+			output = null;
+		}
+		
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		
+		try (DataOutputStream compacted = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+		{
+			for (Map.Entry<K, V> entry : entries.entrySet())
+			{
+				compacted.writeByte(PUT);
+				writeKey(compacted, entry.getKey());
+				writeValue(compacted, entry.getValue());
+			}
+		}
+		
+		try
+		{
+			Files.move(temp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException e)
+		{
+			Files.move(temp, file, REPLACE_EXISTING);
+		}
+		
+		records = entries.size();
+		openOutput();
+	}
+	
+	/**
+	 * Opens the log for appending.
+	 */
+	private void openOutput() throws IOException
+	{
+		output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile(), true)));
+	}
+	
+	/**
+	 * Writes the records appended so far to the disk.
+	 *
+	 * @throws IOException
+	 *             the log couldn't be written
+	 */
+	public synchronized void flush() throws IOException
+	{
+		if (output != null)
+		{
+			output.flush();
+		}
+	}
+	
+	/**
+	 * Writes the records appended to the disk, and closes the log.
+	 *
+	 * @throws IOException
+	 *             the log couldn't be written
+	 */
+	@Override
+	public synchronized void close() throws IOException
+	{
+		if (output != null)
+		{
+			output.close();
+			output = null;
+		}
+	}
+	
+	// #endregion Log.
+	// --------------------------------------------------------------------------------------
+	
+	// --------------------------------------------------------------------------------------
+	// #region Serialisation.
+	
+	/**
+	 * Writes the key.
+	 */
+	protected abstract void writeKey(DataOutput output, K key) throws IOException;
+	
+	/**
+	 * Reads the key.
+	 */
+	protected abstract K readKey(DataInput input) throws IOException;
+	
+	/**
+	 * Writes the value.
+	 */
+	protected abstract void writeValue(DataOutput output, V value) throws IOException;
+	
+	/**
+	 * Reads the value.
+	 */
+	protected abstract V readValue(DataInput input) throws IOException;
+	
+	// #endregion Serialisation.
+	// --------------------------------------------------------------------------------------
+	
+	// //////////////////////////////////////////////////////////////////////////////////////
+	// #region Getters and setters.
+	// ======================================================================================
+	
+	/**
+	 * @return the file
+	 */
+	public Path getFile()
+	{
+		return file;
+	}
+	
+	/**
+	 * @return the compactionThreshold
+	 */
+	public long getCompactionThreshold()
+	{
+		return compactionThreshold;
+	}
+	
+	/**
+	 * @param compactionThreshold
+	 *            the minimum number of records in the log before considering compaction
+	 */
+	public void setCompactionThreshold(long compactionThreshold)
+	{
+		this.compactionThreshold = compactionThreshold;
+	}
+	
+	// ======================================================================================
+	// #endregion Getters and setters.
+	// //////////////////////////////////////////////////////////////////////////////////////
+	
+}
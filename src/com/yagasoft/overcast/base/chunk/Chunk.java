@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.chunk/Chunk.java
+ *
+ *			Modified: 20-Oct-2026 (03:12:08)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.chunk;
+
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+
+/**
+ * A piece of a file cut by the {@link Chunker}, identified by the hash of its content.
+ */
+public class Chunk
+{
+	
+	/** The hash of the content (SHA-256, lower-case hex). */
+	protected final String	hash;
+	
+	/** Position of the chunk in the file. */
+	protected final long	offset;
+	
+	/** The content. */
+	protected final byte[]	data;
+	
+	/**
+	 * Instantiates a new chunk, hashing its content.
+	 *
+	 * @param offset
+	 *            the position of the chunk in the file
+	 * @param data
+	 *            the content
+	 */
+	public Chunk(long offset, byte[] data)
+	{
+		this.hash = hash(data, data.length);
+		this.offset = offset;
+		this.data = data;
+	}
+	
+	/**
+	 * Hashes the content passed (SHA-256).
+	 *
+	 * @param data
+	 *            the data
+	 * @param length
+	 *            the number of bytes to hash from the start
+	 * @return the hash, in lower-case hex
+	 */
+	public static String hash(byte[] data, int length)
+	{
+		MessageDigest digest;
+		
+		try
+		{
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e)
+		{	// every JRE must support it.
+			throw new IllegalStateException(e);
+		}
+		
+		digest.update(data, 0, length);
+		
+		StringBuilder hex = new StringBuilder();
+		
+		for (byte b : digest.digest())
+		{
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		
+		return hex.toString();
+	}
+	
+	// //////////////////////////////////////////////////////////////////////////////////////
+	// #region Getters.
+	// ======================================================================================
+	
+	/**
+	 * @return the hash
+	 */
+	public String getHash()
+	{
+		return hash;
+	}
+	
+	/**
+	 * @return the offset
+	 */
+	public long getOffset()
+	{
+		return offset;
+	}
+	
+	/**
+	 * @return the data
+	 */
+	public byte[] getData()
+	{
+		return data;
+	}
+	
+	/**
+	 * @return the length of the content
+	 */
+	public int getLength()
+	{
+		return data.length;
+	}
+	
+	// ======================================================================================
+	// #endregion Getters.
+	// //////////////////////////////////////////////////////////////////////////////////////
+	
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.chunk/ChunkCache.java
+ *
+ *			Modified: 20-Oct-2026 (04:52:19)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.chunk;
+
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import com.yagasoft.logger.Logger;
+import com.yagasoft.overcast.base.container.local.LocalFolder;
+import com.yagasoft.overcast.exception.OperationException;
+
+
+/**
+ * A folder on the disk keeping chunks by hash (the name of each file is the hash of its content). The chunks downloaded
+ * are kept here, so a chunk shared by several files is downloaded once.<br />
+ * The total size is bounded (see {@link #setMaxSize(long)}): when it's exceeded, the least recently used chunks are
+ * deleted first.
+ */
+public class ChunkCache
+{
+	
+	/** The folder. */
+	protected final Path				directory;
+	
+	/** The folder, as a container to download to. */
+	protected final LocalFolder			folder;
+	
+	/** Sizes of the chunks cached, mapped by hash, in the order of use. */
+	protected final Map<String, Long>	chunks	= new LinkedHashMap<String, Long>(16, 0.75f, true);
+	
+	/** Total size of the chunks cached. */
+	protected long						size;
+	
+	/** Maximum total size of the chunks; the least recently used are deleted first. */
+	protected long						maxSize	= 1024L * 1024 * 1024;
+	
+	/**
+	 * Instantiates a new chunk cache, creating the folder if it doesn't exist, and reading the chunks already in it, the
+	 * least recently modified first.
+	 *
+	 * @param directory
+	 *            the folder
+	 * @throws OperationException
+	 *             the folder couldn't be created
+	 */
+	public ChunkCache(Path directory) throws OperationException
+	{
+		this.directory = directory.toAbsolutePath();
+		
+		try
+		{
+			Files.createDirectories(this.directory);
+		}
+		catch (IOException e)
+		{
+			Logger.error("OVERCAST: CHUNKCACHE: failed to create: " + directory);
+			Logger.except(e);
+			throw new OperationException("Failed to create chunk cache: " + e.getMessage());
+		}
+		
+		folder = new LocalFolder(this.directory);
+		
+		List<Path> files = new ArrayList<Path>();
+		
+		try (Stream<Path> stream = Files.list(this.directory))
+		{
+			stream.filter(file -> Files.isRegularFile(file) && (file.getFileName().toString().indexOf('.') < 0))
+					.forEach(files::add);
+			
+			files.sort(Comparator.comparingLong(file -> file.toFile().lastModified()));
+		}
+		catch (IOException e)
+		{
+			Logger.error("OVERCAST: CHUNKCACHE: failed to list: " + directory);
+			Logger.except(e);
+		}
+		
+		for (Path file : files)
+		{
+			admit(file.getFileName().toString());
+		}
+	}
+	
+	/**
+	 * Checks if the chunk is cached.
+	 *
+	 * @param hash
+	 *            the hash of the chunk
+	 * @return true, if cached
+	 */
+	public boolean contains(String hash)
+	{
+		return Files.isRegularFile(getPath(hash));
+	}
+	
+	/**
+	 * Gets the path of the chunk, whether cached or not.
+	 *
+	 * @param hash
+	 *            the hash of the chunk
+	 * @return the path
+	 */
+	public Path getPath(String hash)
+	{
+		return directory.resolve(hash);
+	}
+	
+	/**
+	 * Caches the chunk if it isn't already, and then deletes the least recently used chunks if the cache is over its
+	 * size. It's written to a temporary file first, so a chunk in the cache is always complete.
+	 *
+	 * @param chunk
+	 *            the chunk
+	 * @return the path of the chunk
+	 * @throws IOException
+	 *             the chunk couldn't be written
+	 */
+	public Path put(Chunk chunk) throws IOException
+	{
+		Path path = getPath(chunk.getHash());
+		
+		if (Files.isRegularFile(path))
+		{
+			admit(chunk.getHash());
+			return path;
+		}
+		
+		Path temp = Files.createTempFile(directory, chunk.getHash(), ".tmp");
+		
+		try
+		{
+			Files.write(temp, chunk.getData());
+			
+			try
+			{
+				Files.move(temp, path, REPLACE_EXISTING, ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException e)
+			{
+				Files.move(temp, path, REPLACE_EXISTING);
+			}
+		}
+		finally
+		{
+			Files.deleteIfExists(temp);
+		}
+		
+		admit(chunk.getHash());
+		trim();
+		
+		return path;
+	}
+	
+	/**
+	 * Counts the chunk written to the folder from outside (e.g. downloaded to it) in the size of the cache, as the most
+	 * recently used. It doesn't delete anything, so the chunks being used stay until {@link #trim()} is called.
+	 *
+	 * @param hash
+	 *            the hash of the chunk; ignored if it's not in the folder
+	 */
+	public synchronized void admit(String hash)
+	{
+		Path path = getPath(hash);
+		
+		if ( !Files.isRegularFile(path))
+		{
+			return;
+		}
+		
+		long length = path.toFile().length();
+		Long old = chunks.put(hash, length);
+		size += length - ((old == null) ? 0 : old);
+	}
+	
+	/**
+	 * Deletes the least recently used chunks until the cache is within its size; the most recent chunk is always kept.
+	 */
+	public synchronized void trim()
+	{
+		Iterator<Map.Entry<String, Long>> iterator = chunks.entrySet().iterator();
+		
+		while ((size > maxSize) && (chunks.size() > 1))
+		{
+			Map.Entry<String, Long> eldest = iterator.next();
+			iterator.remove();
+			size -= eldest.getValue();
+			
+			try
+			{
+				Files.deleteIfExists(getPath(eldest.getKey()));
+			}
+			catch (IOException e)
+			{
+				Logger.error("OVERCAST: CHUNKCACHE: failed to delete: " + eldest.getKey());
+				Logger.except(e);
+			}
+		}
+	}
+	
+	/**
+	 * Reads the chunk, and checks that its content matches its hash; a corrupt chunk is removed from the cache.
+	 *
+	 * @param hash
+	 *            the hash of the chunk
+	 * @return the content
+	 * @throws IOException
+	 *             the chunk isn't cached, couldn't be read, or is corrupt
+	 */
+	public byte[] read(String hash) throws IOException
+	{
+		byte[] data = Files.readAllBytes(getPath(hash));
+		
+		if ( !hash.equals(Chunk.hash(data, data.length)))
+		{
+			remove(hash);
+			throw new IOException("Corrupt chunk in cache: " + hash);
+		}
+		
+		// mark it as used.
+		synchronized (this)
+		{
+			if (chunks.get(hash) == null)
+			{
+				admit(hash);
+			}
+		}
+		
+		return data;
+	}
+	
+	/**
+	 * Removes the chunk from the cache.
+	 *
+	 * @param hash
+	 *            the hash of the chunk
+	 * @throws IOException
+	 *             the chunk couldn't be deleted
+	 */
+	public synchronized void remove(String hash) throws IOException
+	{
+		Long length = chunks.remove(hash);
+		
+		if (length != null)
+		{
+			size -= length;
+		}
+		
+		Files.deleteIfExists(getPath(hash));
+	}
+	
+	// //////////////////////////////////////////////////////////////////////////////////////
+	// #region Getters and setters.
+	// ======================================================================================
+	
+	/**
+	 * @return the directory
+	 */
+	public Path getDirectory()
+	{
+		return directory;
+	}
+	
+	/**
+	 * @return the folder, as a container to download to
+	 */
+	public LocalFolder getFolder()
+	{
+		return folder;
+	}
+	
+	/**
+	 * @return the total size of the chunks cached
+	 */
+	public synchronized long getSize()
+	{
+		return size;
+	}
+	
+	/**
+	 * @return the maximum total size of the chunks
+	 */
+	public synchronized long getMaxSize()
+	{
+		return maxSize;
+	}
+	
+	/**
+	 * @param maxSize
+	 *            the maximum total size of the chunks; the least recently used are deleted first, right away if over it
+	 */
+	public synchronized void setMaxSize(long maxSize)
+	{
+		if (maxSize < 0)
+		{
+			throw new IllegalArgumentException("Size must not be negative: " + maxSize);
+		}
+		
+		this.maxSize = maxSize;
+		trim();
+	}
+	
+	// ======================================================================================
+	// #endregion Getters and setters.
+	// //////////////////////////////////////////////////////////////////////////////////////
+	
+}
@@ -0,0 +1,536 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.chunk/ChunkStore.java
+ *
+ *			Modified: 20-Oct-2026 (04:58:03)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.chunk;
+
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import com.yagasoft.logger.Logger;
+import com.yagasoft.overcast.base.container.Container;
+import com.yagasoft.overcast.base.container.local.LocalFile;
+import com.yagasoft.overcast.base.container.local.LocalFolder;
+import com.yagasoft.overcast.base.container.remote.RemoteFile;
+import com.yagasoft.overcast.base.container.remote.RemoteFolder;
+import com.yagasoft.overcast.base.container.transfer.event.ITransferProgressListener;
+import com.yagasoft.overcast.base.container.transfer.event.TransferEvent;
+import com.yagasoft.overcast.base.container.transfer.event.TransferState;
+import com.yagasoft.overcast.base.csp.CSP;
+import com.yagasoft.overcast.exception.OperationException;
+import com.yagasoft.overcast.exception.TransferException;
+
+
+/**
+ * Stores files on a CSP as chunks (see {@link Chunker}): each chunk is a file in the chunks folder on the server, named by
+ * its hash, and is uploaded once however many files (or versions) contain it. A file is uploaded as a manifest (see
+ * {@link Manifest}) listing its chunks, in the folder chosen, and named after the file with {@link Manifest#EXTENSION}
+ * appended.<br />
+ * Downloading a manifest fetches only the chunks missing from the {@link ChunkCache}, and assembles the file from it.<br />
+ * <br />
+ * The transfers go through the CSP's queues as usual, and the methods here wait for them to finish; so, they must not be
+ * called from a transfer listener. Only one file is transferred by a store at a time.
+ */
+public class ChunkStore
+{
+	
+	/** The CSP. */
+	protected final CSP<?, ?, ?>		csp;
+	
+	/** The folder on the server keeping the chunks. */
+	protected final RemoteFolder<?>		chunksFolder;
+	
+	/** The local chunk cache, where chunks are kept when downloaded. */
+	protected final ChunkCache			cache;
+	
+	/** The chunker. */
+	protected Chunker					chunker	= new Chunker();
+	
+	/**
+	 * Instantiates a new chunk store.
+	 *
+	 * @param csp
+	 *            the CSP
+	 * @param chunksFolder
+	 *            the folder on the server keeping the chunks; it should be used for nothing else
+	 * @param cache
+	 *            the local chunk cache
+	 */
+	public ChunkStore(CSP<?, ?, ?> csp, RemoteFolder<?> chunksFolder, ChunkCache cache)
+	{
+		this.csp = csp;
+		this.chunksFolder = chunksFolder;
+		this.cache = cache;
+	}
+	
+	// --------------------------------------------------------------------------------------
+	// #region Upload.
+	
+	/**
+	 * Uploads the file as chunks, skipping those already on the server, and then uploads its manifest, replacing the
+	 * existing one. The new chunks are staged in a temporary folder, deleted when done; they're not cached.
+	 *
+	 * @param file
+	 *            the file
+	 * @param parent
+	 *            the folder on the server to upload the manifest to
+	 * @param listener
+	 *            listener to the transfer of each chunk and the manifest; can be null
+	 * @return the manifest
+	 * @throws TransferException
+	 *             the file couldn't be read, or a chunk or the manifest couldn't be uploaded
+	 */
+	public synchronized Manifest upload(LocalFile file, RemoteFolder<?> parent, ITransferProgressListener listener)
+			throws TransferException
+	{
+		Logger.info("OVERCAST: CHUNKSTORE: uploading: " + file.getPath());
+		
+		Manifest manifest = new Manifest();
+		List<Path> newChunks = new ArrayList<Path>();
+		Transfers transfers = new Transfers(listener);
+		Path staging = null;
+		
+		try
+		{
+			chunksFolder.loadChildren();
+			staging = Files.createTempDirectory(cache.getDirectory(), "upload");
+			Path stagingFolder = staging;
+			
+			// cut the file, and stage the chunks that aren't on the server yet.
+			Set<String> hashes = new HashSet<String>();
+			
+			chunker.split(file.getSourceObject(), chunk ->
+			{
+				manifest.add(chunk.getHash(), chunk.getLength());
+				
+				if (hashes.add(chunk.getHash()) && !isStored(chunk.getHash()))
+				{
+					newChunks.add(Files.write(stagingFolder.resolve(chunk.getHash()), chunk.getData()));
+				}
+			});
+			
+			Logger.info("OVERCAST: CHUNKSTORE: chunks: " + manifest.getEntries().size() + ", unique: " + hashes.size()
+					+ ", new: " + newChunks.size());
+			
+			for (Path chunk : newChunks)
+			{
+				transfers.expect();
+				csp.upload(new LocalFile(chunk), chunksFolder, false, transfers);
+			}
+			
+			// the manifest must only refer to chunks already on the server.
+			transfers.await();
+			
+			Path manifestFile = staging.resolve(file.getName() + Manifest.EXTENSION);
+			manifest.write(manifestFile);
+			
+			transfers.expect();
+			csp.upload(new LocalFile(manifestFile), parent, true, transfers);
+			transfers.await();
+		}
+		catch (IOException | OperationException e)
+		{
+			Logger.error("OVERCAST: CHUNKSTORE: failed to upload: " + file.getPath());
+			Logger.except(e);
+			throw new TransferException("Failed to upload " + file.getPath() + ": " + e.getMessage(), e);
+		}
+		catch (TransferException e)
+		{
+			transfers.cancelExpect();
+			throw e;
+		}
+		finally
+		{
+			deleteStaging(staging);
+		}
+		
+		Logger.info("OVERCAST: CHUNKSTORE: uploaded: " + file.getPath());
+		
+		return manifest;
+	}
+	
+	/**
+	 * Checks if the chunk is on the server, from the chunks folder as loaded.
+	 *
+	 * @param hash
+	 *            the hash of the chunk
+	 * @return true, if stored
+	 */
+	public boolean isStored(String hash)
+	{
+		return findChunk(hash) != null;
+	}
+	
+	// #endregion Upload.
+	// --------------------------------------------------------------------------------------
+	
+	// --------------------------------------------------------------------------------------
+	// #region Download.
+	
+	/**
+	 * Downloads the manifest, fetches the chunks missing from the cache, and assembles the file in the folder passed. The
+	 * cache is trimmed to its size afterwards.
+	 *
+	 * @param manifestFile
+	 *            the manifest on the server
+	 * @param parent
+	 *            the local folder to assemble the file in
+	 * @param overwrite
+	 *            overwrite the existing file
+	 * @param listener
+	 *            listener to the transfer of the manifest and each chunk; can be null
+	 * @return the file assembled
+	 * @throws TransferException
+	 *             the file exists, or a chunk is missing, corrupt, or couldn't be downloaded, or the file couldn't be
+	 *             written
+	 */
+	public synchronized LocalFile download(RemoteFile<?> manifestFile, LocalFolder parent, boolean overwrite,
+			ITransferProgressListener listener) throws TransferException
+	{
+		String name = manifestFile.getName();
+		
+		if ( !name.endsWith(Manifest.EXTENSION))
+		{
+			throw new TransferException("Not a manifest: " + manifestFile.getPath());
+		}
+		
+		Path target = Paths.get(parent.getPath(), name.substring(0, name.length() - Manifest.EXTENSION.length()));
+		
+		if ( !overwrite && Files.exists(target))
+		{
+			throw new TransferException("Already exists: " + target);
+		}
+		
+		Logger.info("OVERCAST: CHUNKSTORE: downloading: " + manifestFile.getPath());
+		
+		Transfers transfers = new Transfers(listener);
+		Set<String> fetched = new HashSet<String>();
+		Path staging = null;
+		
+		try
+		{
+			staging = Files.createTempDirectory(cache.getDirectory(), "manifest");
+			
+			transfers.expect();
+			csp.download(manifestFile, new LocalFolder(staging), true, transfers);
+			transfers.await();
+			
+			Manifest manifest = Manifest.read(staging.resolve(name));
+			
+			// fetch the chunks that aren't cached.
+			chunksFolder.loadChildren();
+			
+			for (Manifest.Entry entry : manifest.getEntries())
+			{
+				if (cache.contains(entry.getHash()) || !fetched.add(entry.getHash()))
+				{
+					continue;
+				}
+				
+				RemoteFile<?> chunk = findChunk(entry.getHash());
+				
+				if (chunk == null)
+				{
+					throw new TransferException("Missing chunk: " + entry.getHash() + ", in: " + manifestFile.getPath());
+				}
+				
+				transfers.expect();
+				csp.download(chunk, cache.getFolder(), true, transfers);
+			}
+			
+			transfers.await();
+			
+			Logger.info("OVERCAST: CHUNKSTORE: chunks: " + manifest.getEntries().size() + ", downloaded: " + fetched.size());
+			
+			assemble(manifest, target, overwrite);
+		}
+		catch (IOException | OperationException e)
+		{
+			Logger.error("OVERCAST: CHUNKSTORE: failed to download: " + manifestFile.getPath());
+			Logger.except(e);
+			throw new TransferException("Failed to download " + manifestFile.getPath() + ": " + e.getMessage(), e);
+		}
+		catch (TransferException e)
+		{
+			transfers.cancelExpect();
+			throw e;
+		}
+		finally
+		{
+			// count what was downloaded, and only then make room, so no chunk of this file is deleted before it's assembled.
+			fetched.forEach(cache::admit);
+			cache.trim();
+			deleteStaging(staging);
+		}
+		
+		LocalFile file = new LocalFile(target);
+		parent.add(file);
+		
+		Logger.info("OVERCAST: CHUNKSTORE: downloaded: " + target);
+		
+		return file;
+	}
+	
+	/**
+	 * Writes the chunks in the manifest from the cache to a temporary file next to the target, and then moves it to the
+	 * target; so the target is never left incomplete.
+	 */
+	protected void assemble(Manifest manifest, Path target, boolean overwrite) throws IOException
+	{
+		Path temp = target.resolveSibling("." + target.getFileName() + ".part");
+		
+		try
+		{
+			try (OutputStream output = Files.newOutputStream(temp))
+			{
+				for (Manifest.Entry entry : manifest.getEntries())
+				{
+					byte[] data = cache.read(entry.getHash());
+					
+					if (data.length != entry.getLength())
+					{
+						throw new IOException("Chunk length mismatch: " + entry.getHash());
+					}
+					
+					output.write(data);
+				}
+			}
+			
+			try
+			{
+				if (overwrite)
+				{
+					Files.move(temp, target, REPLACE_EXISTING, ATOMIC_MOVE);
+				}
+				else
+				{
+					Files.move(temp, target, ATOMIC_MOVE);
+				}
+			}
+			catch (AtomicMoveNotSupportedException e)
+			{
+				if (overwrite)
+				{
+					Files.move(temp, target, REPLACE_EXISTING);
+				}
+				else
+				{
+					Files.move(temp, target);
+				}
+			}
+		}
+		finally
+		{
+			Files.deleteIfExists(temp);
+		}
+	}
+	
+	// #endregion Download.
+	// --------------------------------------------------------------------------------------
+	
+	/**
+	 * Finds the chunk in the chunks folder as loaded.
+	 *
+	 * @return the remote chunk, or null if not found
+	 */
+	protected RemoteFile<?> findChunk(String hash)
+	{
+		for (Container<?> container : chunksFolder.getChildrenByName(hash))
+		{
+			if ( !container.isFolder())
+			{
+				return (RemoteFile<?>) container;
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Deletes the staging folder and its content, logging any failure.
+	 */
+	protected void deleteStaging(Path staging)
+	{
+		if (staging == null)
+		{
+			return;
+		}
+		
+		try (Stream<Path> files = Files.list(staging))
+		{
+			for (Path file : (Iterable<Path>) files::iterator)
+			{
+				Files.deleteIfExists(file);
+			}
+			
+			Files.deleteIfExists(staging);
+		}
+		catch (IOException e)
+		{
+			Logger.error("OVERCAST: CHUNKSTORE: failed to delete: " + staging);
+			Logger.except(e);
+		}
+	}
+	
+	// //////////////////////////////////////////////////////////////////////////////////////
+	// #region Getters and setters.
+	// ======================================================================================
+	
+	/**
+	 * @return the chunksFolder
+	 */
+	public RemoteFolder<?> getChunksFolder()
+	{
+		return chunksFolder;
+	}
+	
+	/**
+	 * @return the cache
+	 */
+	public ChunkCache getCache()
+	{
+		return cache;
+	}
+	
+	/**
+	 * @return the chunker
+	 */
+	public Chunker getChunker()
+	{
+		return chunker;
+	}
+	
+	/**
+	 * @param chunker
+	 *            the chunker to set; changing the sizes later makes new uploads share fewer chunks with the old ones
+	 */
+	public void setChunker(Chunker chunker)
+	{
+		this.chunker = chunker;
+	}
+	
+	// ======================================================================================
+	// #endregion Getters and setters.
+	// //////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Counts the transfers queued that haven't finished yet, passing their events to the listener as well, so a batch of
+	 * transfers can be waited on.
+	 */
+	protected static class Transfers implements ITransferProgressListener
+	{
+		
+		/** Listener to pass the events to; can be null. */
+		private final ITransferProgressListener	listener;
+		
+		/** Number of transfers that haven't finished yet. */
+		private int								pending;
+		
+		/** The files that failed to transfer. */
+		private final List<String>				failed	= new ArrayList<String>();
+		
+		/**
+		 * Instantiates a new transfers counter.
+		 */
+		protected Transfers(ITransferProgressListener listener)
+		{
+			this.listener = listener;
+		}
+		
+		/**
+		 * Counts a transfer about to be queued.
+		 */
+		protected synchronized void expect()
+		{
+			pending++;
+		}
+		
+		/**
+		 * Un-counts the last transfer expected, as it failed to be queued.
+		 */
+		protected synchronized void cancelExpect()
+		{
+			if (pending > 0)
+			{
+				pending--;
+			}
+		}
+		
+		/**
+		 * @see com.yagasoft.overcast.base.container.transfer.event.ITransferProgressListener#transferProgressChanged(com.yagasoft.overcast.base.container.transfer.event.TransferEvent)
+		 */
+		@Override
+		public void transferProgressChanged(TransferEvent event)
+		{
+			if (listener != null)
+			{
+				listener.transferProgressChanged(event);
+			}
+			
+			TransferState state = event.getState();
+			
+			if ((state == TransferState.COMPLETED) || (state == TransferState.FAILED) || (state == TransferState.CANCELLED))
+			{
+				synchronized (this)
+				{
+					if (state != TransferState.COMPLETED)
+					{
+						failed.add(event.getJob().getSourceFile().getPath());
+					}
+					
+					pending--;
+					notifyAll();
+				}
+			}
+		}
+		
+		/**
+		 * Waits for the transfers expected to finish.
+		 *
+		 * @throws TransferException
+		 *             a transfer failed, or the wait was interrupted
+		 */
+		protected synchronized void await() throws TransferException
+		{
+			try
+			{
+				while (pending > 0)
+				{
+					wait();
+				}
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new TransferException("Interrupted while waiting for transfers.", e);
+			}
+			
+			if ( !failed.isEmpty())
+			{
+				throw new TransferException("Failed to transfer: " + failed);
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.chunk/Chunker.java
+ *
+ *			Modified: 20-Oct-2026 (03:21:36)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.chunk;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+
+/**
+ * Cuts content into chunks where the content itself says so, using a rolling (gear) hash over the last 64 bytes: a cut
+ * is made after a byte where the top bits of the hash are all zero. So, inserting or removing bytes in a file only
+ * changes the chunks around the edit, and identical regions in different files (or in versions of the same file) give
+ * identical chunks.<br />
+ * Chunks are never shorter than the minimum size (except the last), or longer than the maximum.
+ */
+public class Chunker
+{
+	
+	/** Number of bytes that affect the hash at any point; it's 64 because the hash is shifted once for every byte. */
+	private static final int		WINDOW	= 64;
+	
+	/** Random values for each byte value; the seed is fixed, so the cuts are the same on every run and every machine. */
+	private static final long[]		GEAR	= new long[256];
+	
+	static
+	{
+		Random random = new Random(0x0C0FFEE5EEDL);
+		
+		for (int i = 0; i < GEAR.length; i++)
+		{
+			GEAR[i] = random.nextLong();
+		}
+	}
+	
+	/** Minimum size of a chunk. */
+	protected final int				minSize;
+	
+	/** Average size of a chunk; a power of 2. */
+	protected final int				averageSize;
+	
+	/** Maximum size of a chunk. */
+	protected final int				maxSize;
+	
+	/** Number of top bits of the hash that must be zero for a cut. */
+	protected final int				bits;
+	
+	/**
+	 * Instantiates a new chunker with an average of 1 MiB chunks, between 256 KiB and 4 MiB.
+	 */
+	public Chunker()
+	{
+		this(256 * 1024, 1024 * 1024, 4 * 1024 * 1024);
+	}
+	
+	/**
+	 * Instantiates a new chunker.
+	 *
+	 * @param minSize
+	 *            the minimum size of a chunk; at least 64 bytes
+	 * @param averageSize
+	 *            the average size of a chunk; a power of 2, more than the minimum
+	 * @param maxSize
+	 *            the maximum size of a chunk; more than the average
+	 */
+	public Chunker(int minSize, int averageSize, int maxSize)
+	{
+		if ((minSize < WINDOW) || (averageSize <= minSize) || (maxSize <= averageSize)
+				|| (Integer.bitCount(averageSize) != 1))
+		{
+			throw new IllegalArgumentException("Invalid chunk sizes: " + minSize + ", " + averageSize + ", " + maxSize);
+		}
+		
+		this.minSize = minSize;
+		this.averageSize = averageSize;
+		this.maxSize = maxSize;
+		bits = Integer.numberOfTrailingZeros(averageSize);
+	}
+	
+	/**
+	 * Cuts the content of the stream into chunks, passing each to the handler as soon as it's cut.
+	 *
+	 * @param input
+	 *            the input; it's not closed here
+	 * @param handler
+	 *            the handler of the chunks
+	 * @throws IOException
+	 *             the input couldn't be read, or the handler failed
+	 */
+	public void split(InputStream input, IChunkHandler handler) throws IOException
+	{
+		byte[] buffer = new byte[maxSize];
+		int length = 0;
+		long offset = 0;
+		boolean end = false;
+		
+		while (true)
+		{
+			// fill the buffer, so a whole chunk can be found in it.
+			while ( !end && (length < maxSize))
+			{
+				int read = input.read(buffer, length, maxSize - length);
+				
+				if (read < 0)
+				{
+					end = true;
+				}
+				else
+				{
+					length += read;
+				}
+			}
+			
+			if (length == 0)
+			{
+				return;
+			}
+			
+			int cut = findCut(buffer, length);
+			
+			handler.chunkCut(new Chunk(offset, Arrays.copyOf(buffer, cut)));
+			
+			// keep the rest for the next chunk.
+			System.arraycopy(buffer, cut, buffer, 0, length - cut);
+			length -= cut;
+			offset += cut;
+		}
+	}
+	
+	/**
+	 * Cuts the content of the file into chunks, passing each to the handler as soon as it's cut.
+	 *
+	 * @param file
+	 *            the file
+	 * @param handler
+	 *            the handler of the chunks
+	 * @throws IOException
+	 *             the file couldn't be read, or the handler failed
+	 */
+	public void split(Path file, IChunkHandler handler) throws IOException
+	{
+		try (InputStream input = Files.newInputStream(file))
+		{
+			split(input, handler);
+		}
+	}
+	
+	/**
+	 * Finds where to cut the first chunk in the buffer.
+	 *
+	 * @return the length of the chunk
+	 */
+	protected int findCut(byte[] buffer, int length)
+	{
+		if (length <= minSize)
+		{
+			return length;
+		}
+		
+		long hash = 0;
+		
+		// start a window early, so the hash at the minimum size covers a full window.
+		for (int i = minSize - WINDOW; i < length; i++)
+		{
+			hash = (hash << 1) + GEAR[buffer[i] & 0xFF];
+			
+			if ((i >= minSize) && ((hash >>> (Long.SIZE - bits)) == 0))
+			{
+				return i + 1;
+			}
+		}
+		
+		return length;
+	}
+	
+	// //////////////////////////////////////////////////////////////////////////////////////
+	// #region Getters.
+	// ======================================================================================
+	
+	/**
+	 * @return the minSize
+	 */
+	public int getMinSize()
+	{
+		return minSize;
+	}
+	
+	/**
+	 * @return the averageSize
+	 */
+	public int getAverageSize()
+	{
+		return averageSize;
+	}
+	
+	/**
+	 * @return the maxSize
+	 */
+	public int getMaxSize()
+	{
+		return maxSize;
+	}
+	
+	// ======================================================================================
+	// #endregion Getters.
+	// //////////////////////////////////////////////////////////////////////////////////////
+	
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.chunk/IChunkHandler.java
+ *
+ *			Modified: 20-Oct-2026 (03:14:51)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.chunk;
+
+
+import java.io.IOException;
+
+
+/**
+ * The interface for receiving the chunks cut by a {@link Chunker}, in order, as soon as each is cut.
+ */
+@FunctionalInterface
+public interface IChunkHandler
+{
+	
+	/**
+	 * A chunk was cut.
+	 *
+	 * @param chunk
+	 *            the chunk
+	 * @throws IOException
+	 *             the chunk couldn't be handled; this stops the chunker.
+	 */
+	public void chunkCut(Chunk chunk) throws IOException;
+	
+}
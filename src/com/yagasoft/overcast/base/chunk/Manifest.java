@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.chunk/Manifest.java
+ *
+ *			Modified: 20-Oct-2026 (03:33:17)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.chunk;
+
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * The list of chunks making a file, in order. It's stored as a text file: a header line, the size of the file, and then
+ * a line per chunk with its hash and length.
+ */
+public class Manifest
+{
+	
+	/** First line of every manifest, including the version of the format. */
+	private static final String	HEADER		= "OVERCAST-MANIFEST 1";
+	
+	/** Extension of the manifest files on the server. */
+	public static final String	EXTENSION	= ".manifest";
+	
+	/** Size of the file. */
+	protected long				size;
+	
+	/** The chunks, in order. */
+	protected final List<Entry>	entries		= new ArrayList<Entry>();
+	
+	/**
+	 * Adds the chunk at the end of the file.
+	 *
+	 * @param hash
+	 *            the hash of the chunk
+	 * @param length
+	 *            the length of the chunk
+	 */
+	public void add(String hash, int length)
+	{
+		entries.add(new Entry(hash, length));
+		size += length;
+	}
+	
+	/**
+	 * Writes the manifest to the file.
+	 *
+	 * @param file
+	 *            the file
+	 * @throws IOException
+	 *             the file couldn't be written
+	 */
+	public void write(Path file) throws IOException
+	{
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+		{
+			writer.write(HEADER);
+			writer.newLine();
+			writer.write(Long.toString(size));
+			writer.newLine();
+			
+			for (Entry entry : entries)
+			{
+				writer.write(entry.hash + " " + entry.length);
+				writer.newLine();
+			}
+		}
+	}
+	
+	/**
+	 * Reads a manifest from the file.
+	 *
+	 * @param file
+	 *            the file
+	 * @return the manifest
+	 * @throws IOException
+	 *             the file couldn't be read, or isn't a valid manifest
+	 */
+	public static Manifest read(Path file) throws IOException
+	{
+		Manifest manifest = new Manifest();
+		
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+		{
+			if ( !HEADER.equals(reader.readLine()))
+			{
+				throw new IOException("Not a manifest: " + file);
+			}
+			
+			try
+			{
+				long size = Long.parseLong(reader.readLine());
+				
+				for (String line = reader.readLine(); (line != null) && !line.isEmpty(); line = reader.readLine())
+				{
+					int space = line.indexOf(' ');
+					manifest.add(line.substring(0, space), Integer.parseInt(line.substring(space + 1)));
+				}
+				
+				if (manifest.size != size)
+				{
+					throw new IOException("Manifest is incomplete: " + file);
+				}
+			}
+			catch (NumberFormatException | StringIndexOutOfBoundsException e)
+			{
+				throw new IOException("Corrupt manifest: " + file, e);
+			}
+		}
+		
+		return manifest;
+	}
+	
+	// //////////////////////////////////////////////////////////////////////////////////////
+	// #region Getters.
+	// ======================================================================================
+	
+	/**
+	 * @return the size of the file
+	 */
+	public long getSize()
+	{
+		return size;
+	}
+	
+	/**
+	 * @return the chunks, in order (read-only)
+	 */
+	public List<Entry> getEntries()
+	{
+		return Collections.unmodifiableList(entries);
+	}
+	
+	// ======================================================================================
+	// #endregion Getters.
+	// //////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * A chunk in the manifest.
+	 */
+	public static final class Entry
+	{
+		
+		private final String	hash;
+		private final int		length;
+		
+		private Entry(String hash, int length)
+		{
+			this.hash = hash;
+			this.length = length;
+		}
+		
+		/**
+		 * @return the hash of the chunk
+		 */
+		public String getHash()
+		{
+			return hash;
+		}
+		
+		/**
+		 * @return the length of the chunk
+		 */
+		public int getLength()
+		{
+			return length;
+		}
+	}
+	
+}
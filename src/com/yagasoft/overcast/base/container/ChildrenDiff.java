@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.container/ChildrenDiff.java
+ *
+ *			Modified: 19-Oct-2026 (19:48:27)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.container;
+
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+
+/**
+ * The difference between the children IDs in memory and a fresh listing from the source, computed in a single pass
+ * using hash sets.
+ */
+public class ChildrenDiff
+{
+	
+	/** IDs in the fresh listing only, in the listing's order. */
+	protected final Set<String>	added;
+	
+	/** IDs in memory only. */
+	protected final Set<String>	removed;
+	
+	/** IDs in both. */
+	protected final Set<String>	unchanged;
+	
+	/**
+	 * Instantiates a new children diff.
+	 *
+	 * @param added
+	 *            the added IDs
+	 * @param removed
+	 *            the removed IDs
+	 * @param unchanged
+	 *            the unchanged IDs
+	 */
+	public ChildrenDiff(Set<String> added, Set<String> removed, Set<String> unchanged)
+	{
+		this.added = added;
+		this.removed = removed;
+		this.unchanged = unchanged;
+	}
+	
+	/**
+	 * Computes the difference between the existing IDs and the fresh ones.
+	 *
+	 * @param existing
+	 *            the IDs in memory
+	 * @param fresh
+	 *            the IDs in the fresh listing
+	 * @return the diff
+	 */
+	public static ChildrenDiff compute(Collection<String> existing, Collection<String> fresh)
+	{
+		Set<String> added = new LinkedHashSet<String>(fresh);
+		Set<String> removed = new HashSet<String>();
+		Set<String> unchanged = new HashSet<String>();
+		
+		for (String id : existing)
+		{
+			// whatever is left in the fresh set after this is new.
+			if (added.remove(id))
+			{
+				unchanged.add(id);
+			}
+			else
+			{
+				removed.add(id);
+			}
+		}
+		
+		return new ChildrenDiff(added, removed, unchanged);
+	}
+	
+	/**
+	 * Checks if nothing was added or removed.
+	 *
+	 * @return true, if the listing matches the memory
+	 */
+	public boolean isEmpty()
+	{
+		return added.isEmpty() && removed.isEmpty();
+	}
+	
+	/**
+	 * @return the added IDs
+	 */
+	public Set<String> getAdded()
+	{
+		return added;
+	}
+	
+	/**
+	 * @return the removed IDs
+	 */
+	public Set<String> getRemoved()
+	{
+		return removed;
+	}
+	
+	/**
+	 * @return the unchanged IDs
+	 */
+	public Set<String> getUnchanged()
+	{
+		return unchanged;
+	}
+	
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		return "added: " + added.size() + ", removed: " + removed.size() + ", unchanged: " + unchanged.size();
+	}
+	
+}
@@ -19,6 +19,8 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
 
 import com.yagasoft.logger.Logger;
 import com.yagasoft.overcast.base.container.operation.IOperable;
@@ -47,7 +49,10 @@ public abstract class Container<T> implements IOperable, Comparable<Container<T>
 	/** Name of the container. */
 	protected String										name;
 	
-	/** Path of the container at the source, including its name. */
+	/**
+	 * Path of the container at the source, including its name. It's kept only for containers without a parent (roots and
+	 * detached objects); the rest derive it from the parent chain in {@link #getPath()}.
+	 */
 	protected String										path;
 	
 	/** Path prefix, which will be used to clean-up the path sent by the CSP -- for API path standardisation. */
@@ -74,6 +79,18 @@ public abstract class Container<T> implements IOperable, Comparable<Container<T>
 	/** CSP object related to this container, or where the container is stored at. */
 	protected CSP<T, ?, ?>									csp;
 	
+	/** The case-folded name this container is listed under in the name index of its CSP; null if not indexed. */
+	protected volatile String								indexedName;
+	
+	/**
+	 * The folder counting this container in its totals (see {@link Folder#getTotalSize()}); changes to the totals of this
+	 * container go up through it. Guarded by {@link #totalsLock}.
+	 */
+	protected Folder<?>										countedIn;
+	
+	/** Lock held while the share of this container in the totals changes, or is handed to or taken from a folder. */
+	protected final Object									totalsLock				= new Object();
+	
 	/**
 	 * Generate unique ID for this container.
 	 */
@@ -112,6 +129,8 @@ public abstract class Container<T> implements IOperable, Comparable<Container<T>
 	 * path = ((parent == null || parent.getPath().equals(&quot;/&quot;)) ? &quot;/&quot; : (parent.getPath() + &quot;/&quot;)) + name;
 	 * cleanPath();		// remove the prefix.
 	 * </pre>
+	 *
+	 * The path is dropped afterwards if the container has a parent, as it's derived in the same format from the parent chain.
 	 */
 	public abstract void updateInfo();
 	
@@ -149,7 +168,7 @@ public abstract class Container<T> implements IOperable, Comparable<Container<T>
 			, String newName, IOperationListener... listeners)
 			throws OperationException
 	{
-		Logger.info(csp.getName() + ": CONTAINER: " + operation + " on " + path);
+		Logger.info(csp.getName() + ": CONTAINER: " + operation + " on " + getPath());
 		
 		addTempOperationListeners(operation, listeners);
 		
@@ -173,7 +192,7 @@ public abstract class Container<T> implements IOperable, Comparable<Container<T>
 				}
 				else
 				{
-					Logger.error(csp.getName() + ": CONTAINER: " + "already exists: " + path);
+					Logger.error(csp.getName() + ": CONTAINER: " + "already exists: " + getPath());
 					throw new OperationException("Already exists!");
 				}
 			}
@@ -196,10 +215,12 @@ public abstract class Container<T> implements IOperable, Comparable<Container<T>
 	protected void postOperation(Folder<?> destination, Container<?> affectedContainer, Operation operation)
 			throws OperationException
 	{
+		Folder<?> parent = getParent();
+		
 		// move or delete removes container from this container
-		if ((operation == Operation.MOVE) || (operation == Operation.DELETE))
+		if (((operation == Operation.MOVE) || (operation == Operation.DELETE)) && (parent != null))
 		{
-			getParent().remove(this);
+			parent.remove(this);
 		}
 		
 		// copy or move adds a container to the destination
@@ -225,7 +246,7 @@ public abstract class Container<T> implements IOperable, Comparable<Container<T>
 	 */
 	protected void operationFailed(Operation operation, Exception e) throws OperationException
 	{
-		Logger.error(csp.getName() + ": CONTAINER: " + "moving file: " + path);
+		Logger.error(csp.getName() + ": CONTAINER: " + "moving file: " + getPath());
 		Logger.except(e);
 		e.printStackTrace();
 		
@@ -338,9 +359,11 @@ public abstract class Container<T> implements IOperable, Comparable<Container<T>
 	{
 		try
 		{
-			initOperation(getParent(), false, Operation.RENAME, newName, listeners);
+			Folder<?> parent = locateParent();
+			
+			initOperation(parent, false, Operation.RENAME, newName, listeners);
 			setSourceObject(renameProcess(newName));
-			postOperation(getParent(), this, Operation.RENAME);
+			postOperation(parent, this, Operation.RENAME);
 		}
 		catch (OperationException e)
 		{
@@ -506,10 +529,54 @@ public abstract class Container<T> implements IOperable, Comparable<Container<T>
 	@Override
 	public void notifyOperationListeners(Operation operation, OperationState state, float progress, Container<?> object)
 	{
+		notifyOperationListeners(operation
+				, listener -> listener.operationChange(new OperationEvent(this, operation, state, progress, object)));
+	}
+	
+	/**
+	 * Listeners that accept batches get a single event carrying all the objects; the rest get an event per object.
+	 *
+	 * @see com.yagasoft.overcast.base.container.operation.IOperable#notifyBatchOperationListeners(com.yagasoft.overcast.base.container.operation.Operation,
+	 *      java.util.List)
+	 * @see IOperationListener#isAcceptingBatches()
+	 */
+	@Override
+	public void notifyBatchOperationListeners(Operation operation, List<Container<?>> objects)
+	{
+		notifyOperationListeners(operation, listener ->
+		{
+			if (listener.isAcceptingBatches())
+			{
+				OperationEvent event = new OperationEvent(this, operation, null, 1.0f);
+				event.setObjects(objects);
+				listener.operationChange(event);
+			}
+			else
+			{
+				objects.forEach(object -> listener.operationChange(new OperationEvent(this, operation, null, 1.0f, object)));
+			}
+		});
+	}
+	
+	/**
+	 * Notify the listeners concerned with the operation, creating the events only if there are any.
+	 *
+	 * @param operation
+	 *            Operation.
+	 * @param notification
+	 *            Sends the event(s) to a listener.
+	 */
+	protected void notifyOperationListeners(Operation operation, Consumer<IOperationListener> notification)
+	{
+		if (operationListeners.isEmpty() && tempOperationListeners.isEmpty())
+		{
+			return;
+		}
+		
 		// go through the listeners' list and notify whoever is concerned with this operation.
 		operationListeners.keySet().parallelStream()
 				.filter(listener -> operationListeners.get(listener).contains(operation))
-				.forEach(listener -> listener.operationChange(new OperationEvent(this, operation, state, progress, object)));
+				.forEach(notification);
 		
 		// go through the temp listeners' list and notify whoever is concerned with this operation.
 		tempOperationListeners.keySet().parallelStream()
@@ -517,7 +584,7 @@ public abstract class Container<T> implements IOperable, Comparable<Container<T>
 						tempOperationListeners.get(listener).contains(operation)
 								&& !(operationListeners.containsKey(listener)		// make sure not to notify twice.
 								&& operationListeners.get(listener).contains(operation)))
-				.forEach(listener -> listener.operationChange(new OperationEvent(this, operation, state, progress, object)));
+				.forEach(notification);
 	}
 	
 	/**
@@ -562,6 +629,101 @@ public abstract class Container<T> implements IOperable, Comparable<Container<T>
 		}
 	}
 	
+	/**
+	 * Called after the size of this container might have changed, to update the totals of its ancestors.
+	 * Only files count towards the totals; see {@link File#sizeChanged()}.
+	 */
+	protected void sizeChanged()
+	{}
+	
+	/**
+	 * Called after the name or the parent of this container might have changed.<br />
+	 * The stored path is dropped for containers with a parent, as {@link #getPath()} derives it on demand.
+	 */
+	protected void pathChanged()
+	{
+		if (parent != null)
+		{
+			path = null;
+		}
+	}
+	
+	/**
+	 * Called after the ID or name of this container might have changed, to let the parent update its lists and indices.
+	 *
+	 * @param oldParent
+	 *            the parent before the change
+	 * @param oldId
+	 *            the ID before the change
+	 * @param oldName
+	 *            the name before the change
+	 */
+	protected void renamed(Folder<?> oldParent, String oldId, String oldName)
+	{
+		if ((oldParent != null) && !(Objects.equals(oldId, id) && Objects.equals(oldName, name)))
+		{
+			oldParent.childRenamed(this, oldId, oldName);
+		}
+	}
+	
+	/**
+	 * Folds the case of the name passed, so that two names that are equal ignoring case have the same folded form,
+	 * exactly like {@link String#equalsIgnoreCase(String)}.
+	 *
+	 * @param name
+	 *            the name
+	 * @return the folded name; the same object if it's already folded
+	 */
+	public static String foldName(String name)
+	{
+		if (name == null)
+		{
+			return null;
+		}
+		
+		int length = name.length();
+		int index = 0;
+		
+		// skip what's already folded, to avoid creating a new string if possible.
+		while ((index < length) && (fold(name.charAt(index)) == name.charAt(index)))
+		{
+			index++;
+		}
+		
+		if (index == length)
+		{
+			return name;
+		}
+		
+		char[] folded = name.toCharArray();
+		
+		for (; index < length; index++)
+		{
+			folded[index] = fold(folded[index]);
+		}
+		
+		return new String(folded);
+	}
+	
+	private static char fold(char character)
+	{
+		return Character.toLowerCase(Character.toUpperCase(character));
+	}
+	
+	/**
+	 * Joins the parent path and the name in the standard API format.
+	 *
+	 * @param parentPath
+	 *            the parent path
+	 * @param name
+	 *            the name
+	 * @return the full path
+	 */
+	protected static String joinPath(String parentPath, String name)
+	{
+		return (((parentPath == null) || parentPath.equals("/")) ? "/" : (parentPath + "/")) + name;
+	}
+	
 	/**
 	 * Checks if the object passed is identical to this one. It checks if it's a container in the first place, and if so, checks
 	 * the ID, and as it's unique, there won't be conflicts.
@@ -588,7 +750,7 @@ public abstract class Container<T> implements IOperable, Comparable<Container<T>
 	@Override
 	public int compareTo(Container<T> container)
 	{
-		return path.compareToIgnoreCase(container.path);
+		return getPath().compareToIgnoreCase(container.getPath());
 	}
 	
 	/**
@@ -676,18 +838,30 @@ public abstract class Container<T> implements IOperable, Comparable<Container<T>
 	 */
 	public void setName(String value)
 	{
+		String oldId = id;
+		String oldName = name;
+		Folder<?> oldParent = parent;
+		
 		this.name = value;
 		updateInfo();		// the path is affected.
+		renamed(oldParent, oldId, oldName);
+		pathChanged();
 	}
 	
 	/**
-	 * Gets the path.
+	 * Gets the path. It's derived from the parent's path and this container's name if it has a parent,
+	 * so renaming or moving a folder reflects on its whole sub-tree at no cost.
 	 *
 	 * @return the path
 	 */
 	public String getPath()
 	{
-		return this.path;
+		if (parent == null)
+		{
+			return path;
+		}
+		
+		return joinPath(parent.getPath(), name);
 	}
 	
 	/**
@@ -743,6 +917,7 @@ public abstract class Container<T> implements IOperable, Comparable<Container<T>
 	public void setSize(long size)
 	{
 		this.size = size;
+		sizeChanged();
 	}
 	
 	/**
@@ -784,8 +959,15 @@ public abstract class Container<T> implements IOperable, Comparable<Container<T>
 	 */
 	public void setSourceObject(T sourceObject)
 	{
+		String oldId = id;
+		String oldName = name;
+		Folder<?> oldParent = parent;
+		
 		this.sourceObject = sourceObject;
 		updateInfo();		// all info are affected. (fields)
+		renamed(oldParent, oldId, oldName);
+		pathChanged();
+		sizeChanged();
 	}
 	
 	/**
@@ -798,6 +980,17 @@ public abstract class Container<T> implements IOperable, Comparable<Container<T>
 		return parent;
 	}
 	
+	/**
+	 * Gets the parent, or if this container wasn't added to a folder, the folder containing it at the source, if it can
+	 * be located on its own (e.g. local containers). The folder located isn't set as the parent.
+	 *
+	 * @return the parent, or null if there's none
+	 */
+	public Folder<?> locateParent()
+	{
+		return parent;
+	}
+	
 	/**
 	 * Sets the parent.
 	 *
@@ -806,8 +999,15 @@ public abstract class Container<T> implements IOperable, Comparable<Container<T>
 	 */
 	public void setParent(Folder<?> parent)
 	{
+		// keep the last known path if it's going to be detached from the tree.
+		if ((parent == null) && (this.parent != null))
+		{
+			path = getPath();
+		}
+		
 		this.parent = parent;
 		updateInfo();
+		pathChanged();
 	}
 	
 	/**
@@ -831,6 +1031,23 @@ public abstract class Container<T> implements IOperable, Comparable<Container<T>
 		this.csp = csp;
 	}
 	
+	/**
+	 * @return the name this container is listed under in the name index
+	 */
+	public String getIndexedName()
+	{
+		return indexedName;
+	}
+	
+	/**
+	 * @param indexedName
+	 *            the name this container is listed under in the name index to set
+	 */
+	public void setIndexedName(String indexedName)
+	{
+		this.indexedName = indexedName;
+	}
+	
 	// ======================================================================================
 	// #endregion Getters and setters.
 	// //////////////////////////////////////////////////////////////////////////////////////
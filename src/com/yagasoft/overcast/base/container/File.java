@@ -28,6 +28,9 @@ public abstract class File<T> extends Container<T>
 	 */
 	protected String	type;
 	
+	/** The size of this file as counted in the totals of its parent and ancestors (see {@link Folder#getTotalSize()}). */
+	protected long		countedSize;
+	
 	/**
 	 * @see com.yagasoft.overcast.base.container.Container#isFolder()
 	 */
@@ -37,6 +40,36 @@ public abstract class File<T> extends Container<T>
 		return false;
 	}
 	
+	/**
+	 * Propagates the difference from the size counted before to the totals of the parent and ancestors.
+	 *
+	 * @see com.yagasoft.overcast.base.container.Container#sizeChanged()
+	 */
+	@Override
+	protected void sizeChanged()
+	{
+		Folder<?> counter;
+		long delta;
+		
+		synchronized (totalsLock)
+		{
+			counter = countedIn;
+			
+			if (counter == null)
+			{
+				return;
+			}
+			
+			delta = size - countedSize;
+			countedSize = size;
+		}
+		
+		if (delta != 0)
+		{
+			counter.addTotals(delta, 0, 0);
+		}
+	}
+	
 	/**
 	 * @return the type
 	 */
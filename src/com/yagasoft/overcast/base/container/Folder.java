@@ -15,22 +15,31 @@ package com.yagasoft.overcast.base.container;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import com.yagasoft.logger.Logger;
 import com.yagasoft.overcast.base.container.operation.IOperationListener;
 import com.yagasoft.overcast.base.container.operation.Operation;
+import com.yagasoft.overcast.base.container.operation.OperationEvent;
 import com.yagasoft.overcast.base.container.operation.OperationState;
 import com.yagasoft.overcast.base.container.remote.RemoteFolder;
+import com.yagasoft.overcast.base.csp.PathIndex;
 import com.yagasoft.overcast.exception.CreationException;
 import com.yagasoft.overcast.exception.OperationException;
 
@@ -45,11 +54,27 @@ import com.yagasoft.overcast.exception.OperationException;
 public abstract class Folder<T> extends Container<T>
 {
 	
-	/** Folders inside this folder mapped by ID (tree implementation). */
-	protected Map<String, Folder<?>>	folders		= new HashMap<String, Folder<?>>();
+	/**
+	 * Folders inside this folder mapped by ID (tree implementation).<br />
+	 * Concurrent, so lookups and iteration never block, even while the tree is being built or refreshed.
+	 * Changed only while holding {@link #childrenLock}; a batch replaces the map as a whole (see {@link #addAll(Collection)}).
+	 */
+	protected volatile Map<String, Folder<?>>	folders		= new ConcurrentHashMap<String, Folder<?>>();
+	
+	/** Files inside this folder mapped by ID. Changed like {@link #folders}. */
+	protected volatile Map<String, File<?>>		files		= new ConcurrentHashMap<String, File<?>>();
+	
+	/** Lock held while changing the children maps. Readers are not blocked. */
+	protected final Object				childrenLock	= new Object();
+	
+	/**
+	 * Children mapped by their case-folded name (see {@link Container#foldName(String)}), for exact-name lookups.<br />
+	 * Lists are never modified in place; they're replaced atomically, with folders first.
+	 */
+	protected Map<String, List<Container<?>>>	namesIndex	= new ConcurrentHashMap<String, List<Container<?>>>();
 	
-	/** Files inside this folder mapped by ID. */
-	protected Map<String, File<?>>		files		= new HashMap<String, File<?>>();
+	/** Lock held while building the tree of this folder, so it's not built twice at the same time. */
+	protected final Object				buildLock	= new Object();
 	
 	/** Thread executor to be used to load sub-folders in the tree. */
 	protected static ExecutorService	executor	= Executors.newCachedThreadPool();
@@ -60,6 +85,49 @@ public abstract class Folder<T> extends Container<T>
 	 */
 	protected static Semaphore			slots		= new Semaphore(2);
 	
+	/**
+	 * Time-to-live (ms) of a children listing; after that, a lookup lists the folder again.
+	 * A negative value means that a loaded folder never goes stale.
+	 */
+	protected static long				childrenTtl	= -1;
+	
+	/** Cache the derived paths of folders in the folders themselves; if false, they're derived on every call. */
+	protected static volatile boolean	cachingPaths	= true;
+	
+	/** The derived path of this folder, and the parent's path it was derived from; null if not derived yet. */
+	protected volatile CachedPath		cachedPath;
+	
+	/** Time (ms since 1970) when the children of this folder were last listed from the source; zero if never. */
+	protected volatile long				lastLoaded;
+	
+	/** The listing in flight for this folder, if any; concurrent callers wait for it instead of listing again. */
+	protected final AtomicReference<FutureTask<Void>>	loading		= new AtomicReference<FutureTask<Void>>();
+	
+	/** The thread running the listing in flight, to allow re-entrant lookups from within the listing itself. */
+	protected volatile Thread			loadingThread;
+	
+	/** The node of this folder in the path index of its CSP, if indexed. */
+	protected volatile PathIndex.Node	pathNode;
+	
+	/** Filter of the names in the sub-tree of this folder; null if not built yet, or out of date. */
+	protected volatile NameFilter		subtreeFilter;
+	
+	/** Incremented on each change in the sub-tree, so a filter built during a change is discarded. */
+	protected volatile int				filterVersion;
+	
+	/** Total size of the files in the sub-tree of this folder, as loaded in memory. Changed under {@link #totalsLock}. */
+	protected volatile long				totalSize;
+	
+	/** Number of files in the sub-tree of this folder, as loaded in memory. */
+	protected volatile long				totalFiles;
+	
+	/** Number of folders in the sub-tree of this folder (excluding itself), as loaded in memory. */
+	protected volatile long				totalFolders;
+	
+	/** Updater of {@link #filterVersion}. */
+	@SuppressWarnings("rawtypes")
+	protected static final AtomicIntegerFieldUpdater<Folder>	FILTER_VERSION	= AtomicIntegerFieldUpdater.newUpdater(Folder.class, "filterVersion");
+	
 	// //////////////////////////////////////////////////////////////////////////////////////
 	// #region Create folder.
 	// ======================================================================================
@@ -127,7 +195,7 @@ public abstract class Folder<T> extends Container<T>
 			tempFolder.create(parent, listeners);
 			parent = tempFolder;		// new parent is the newly created folder.
 			
-			Logger.info(csp.getName() + ": OVERCAST: FOLDER: CREATED mid folder: " + parent.path);
+			Logger.info(csp.getName() + ": OVERCAST: FOLDER: CREATED mid folder: " + parent.getPath());
 		}
 		
 		// done with creating/traversing the path, now search if this folder exists in the last node ...
@@ -220,7 +288,7 @@ public abstract class Folder<T> extends Container<T>
 		parent.add(this);
 		notifyOperationListeners(Operation.CREATE, OperationState.COMPLETED, 1.0f);
 		
-		Logger.info(csp.getName() + ": OVERCAST: FOLDER: FINISHED creating folder: " + path);
+		Logger.info(csp.getName() + ": OVERCAST: FOLDER: FINISHED creating folder: " + getPath());
 	}
 	
 	// ======================================================================================
@@ -235,19 +303,130 @@ public abstract class Folder<T> extends Container<T>
 	 */
 	public void add(Container<?> container)
 	{
-		if (container.isFolder())
+		attach(container);
+		
+		notifyOperationListeners(Operation.ADD, container);
+		
+		Logger.info(csp.getName() + ": OVERCAST: FOLDER: ADDED: " + container.getPath() + ", to parent: " + getPath());
+	}
+	
+	/**
+	 * Adds the containers passed to the list of containers in this folder, usually a whole listing.<br />
+	 * The batch is inserted atomically: the children maps are copied, the containers are put in the copies, and the
+	 * copies replace the maps at once, so a reader sees either none or all of them.<br />
+	 * Listeners are notified with a single {@link Operation#ADD} event carrying all the containers
+	 * (see {@link OperationEvent#getObjects()}) if they accept batches, or an event per container otherwise.
+	 *
+	 * @param containers
+	 *            Containers to add.
+	 */
+	public void addAll(Collection<? extends Container<?>> containers)
+	{
+		if (containers.isEmpty())
 		{
-			folders.put(container.id, (Folder<?>) container);		// extract the ID of the folder and use it to map the folder passed.
+			return;
 		}
-		else
+		
+		List<Container<?>> added = new ArrayList<Container<?>>(containers);
+		
+		synchronized (childrenLock)
 		{
-			files.put(container.id, (File<?>) container);
+			Map<String, Folder<?>> newFolders = new ConcurrentHashMap<String, Folder<?>>(folders);
+			Map<String, File<?>> newFiles = new ConcurrentHashMap<String, File<?>>(files);
+			List<Container<?>> detached = new ArrayList<Container<?>>();
+			Map<Container<?>, Boolean> attached = new IdentityHashMap<Container<?>, Boolean>();
+			
+			for (Container<?> container : added)
+			{
+				container.setParent(this);
+				
+				Container<?> replaced;
+				Container<?> other;
+				
+				if (container.isFolder())
+				{
+					replaced = newFolders.put(container.id, (Folder<?>) container);
+					other = newFiles.remove(container.id);
+				}
+				else
+				{
+					replaced = newFiles.put(container.id, (File<?>) container);
+					other = newFolders.remove(container.id);
+				}
+				
+				// an older object with the same ID is no longer a child; if it came in this batch, it was never attached.
+				if ((replaced != null) && (replaced != container) && (attached.remove(replaced) == null))
+				{
+					detached.add(replaced);
+				}
+				
+				if ((other != null) && (attached.remove(other) == null))
+				{
+					detached.add(other);
+				}
+				
+				if (replaced != container)
+				{
+					attached.put(container, true);
+				}
+			}
+			
+			// publish the whole batch at once.
+			folders = newFolders;
+			files = newFiles;
+			
+			detached.forEach(this::childDetached);
+			added.stream().filter(container -> attached.remove(container) != null).forEach(this::childAttached);
 		}
 		
+		notifyBatchOperationListeners(Operation.ADD, added);
+		
+		Logger.info(csp.getName() + ": OVERCAST: FOLDER: ADDED: " + added.size() + " containers, to parent: " + getPath());
+	}
+	
+	/**
+	 * Puts the container in the children maps of this folder, and updates the indices.
+	 *
+	 * @param container
+	 *            Container to attach.
+	 */
+	protected void attach(Container<?> container)
+	{
 		container.setParent(this);				// set the parent of the container passed as this folder.
-		notifyOperationListeners(Operation.ADD, container);
 		
-		Logger.info(csp.getName() + ": OVERCAST: FOLDER: ADDED: " + container.path + ", to parent: " + path);
+		synchronized (childrenLock)
+		{
+			// publish the container only after it's fully set up.
+			Container<?> replaced;
+			Container<?> other;
+			
+			if (container.isFolder())
+			{
+				replaced = folders.put(container.id, (Folder<?>) container);		// extract the ID of the folder and use it to map the folder passed.
+				other = files.remove(container.id);
+			}
+			else
+			{
+				replaced = files.put(container.id, (File<?>) container);
+				other = folders.remove(container.id);
+			}
+			
+			// an older object with the same ID is no longer a child.
+			if ((replaced != null) && (replaced != container))
+			{
+				childDetached(replaced);
+			}
+			
+			if (other != null)
+			{
+				childDetached(other);
+			}
+			
+			if (replaced != container)
+			{
+				childAttached(container);
+			}
+		}
 	}
 	
 	/**
@@ -258,9 +437,10 @@ public abstract class Folder<T> extends Container<T>
 	 */
 	public void remove(Container<?> container)
 	{
+		Container<?> removed = removeChild(container.id, container.isFolder(), !container.isFolder());
+		
 		// remove container, and if it existed, then remove the parent (this) pointer from it as well.
-		if ((container.isFolder() && (folders.remove(container.id) != null))
-				|| ( !container.isFolder() && (files.remove(container.id) != null)))
+		if (removed != null)
 		{
 			container.setParent(null);
 			notifyOperationListeners(Operation.REMOVE, container);
@@ -268,7 +448,7 @@ public abstract class Folder<T> extends Container<T>
 			// the container is an orphan and not needed, so remove its listeners.
 			container.clearAllListeners();
 			
-			Logger.info(csp.getName() + ": OVERCAST: FOLDER: REMOVED: " + container.path + ", from parent: " + path);
+			Logger.info(csp.getName() + ": OVERCAST: FOLDER: REMOVED: " + container.getPath() + ", from parent: " + getPath());
 		}
 	}
 	
@@ -281,12 +461,523 @@ public abstract class Folder<T> extends Container<T>
 	public void remove(String id)
 	{
 		// try to remove from both lists, it will fail quietly if it doesn't exist in either.
-		if ((folders.remove(id) != null) || (files.remove(id) != null))
+		if (removeChild(id) != null)
 		{
 			Logger.info(csp.getName() + ": OVERCAST: FOLDER: REMOVED file/folder: " + id);
 		}
 	}
 	
+	/**
+	 * Removes the child with the ID passed from the lists and the indices, without notifying anyone.
+	 *
+	 * @param id
+	 *            ID of the container to remove.
+	 * @return the removed container, or null if it wasn't a child
+	 */
+	protected Container<?> removeChild(String id)
+	{
+		return removeChild(id, true, true);
+	}
+	
+	/**
+	 * Removes the child with the ID passed from the lists chosen and the indices, without notifying anyone.
+	 */
+	private Container<?> removeChild(String id, boolean fromFolders, boolean fromFiles)
+	{
+		synchronized (childrenLock)
+		{
+			Container<?> removed = fromFolders ? folders.remove(id) : null;
+			
+			if ((removed == null) && fromFiles)
+			{
+				removed = files.remove(id);
+			}
+			
+			if (removed != null)
+			{
+				childDetached(removed);
+			}
+			
+			return removed;
+		}
+	}
+	
+	// //////////////////////////////////////////////////////////////////////////////////////
+	// #region Children indices.
+	// ======================================================================================
+	
+	/**
+	 * Called after a child is added to the lists of this folder. Updates the indices.
+	 *
+	 * @param child
+	 *            the child
+	 */
+	protected void childAttached(Container<?> child)
+	{
+		indexName(child, child.name);
+		subtreeChanged();
+		rollUp(child, 1);
+		
+		if (isIndexed())
+		{
+			csp.getPathIndex().add(this, child);
+			csp.getNameIndex().addTree(child);
+			indexIds(child, true);
+		}
+	}
+	
+	/**
+	 * Called after a child is removed from the lists of this folder. Updates the indices.
+	 *
+	 * @param child
+	 *            the child
+	 */
+	protected void childDetached(Container<?> child)
+	{
+		unindexName(child, child.name);
+		subtreeChanged();
+		rollUp(child, -1);
+		
+		if (isIndexed())
+		{
+			csp.getPathIndex().remove(this, child);
+			csp.getNameIndex().removeTree(child);
+			indexIds(child, false);
+		}
+	}
+	
+	/**
+	 * Called after a child's ID or name has changed (rename). Re-maps the child and updates the indices.
+	 *
+	 * @param child
+	 *            the child
+	 * @param oldId
+	 *            the old ID
+	 * @param oldName
+	 *            the old name
+	 */
+	protected void childRenamed(Container<?> child, String oldId, String oldName)
+	{
+		synchronized (childrenLock)
+		{
+			Map<String, ? extends Container<?>> map = child.isFolder() ? folders : files;
+			
+			// not a child of this folder.
+			if ((oldId == null) || (map.get(oldId) != child))
+			{
+				return;
+			}
+			
+			// the ID might change with the name (local containers).
+			if ( !oldId.equals(child.id))
+			{
+				map.remove(oldId);
+				
+				if (child.isFolder())
+				{
+					folders.put(child.id, (Folder<?>) child);
+				}
+				else
+				{
+					files.put(child.id, (File<?>) child);
+				}
+			}
+		}
+		
+		unindexName(child, oldName);
+		indexName(child, child.name);
+		subtreeChanged();
+		
+		if (isIndexed())
+		{
+			csp.getPathIndex().rename(this, child, oldName);
+			csp.getNameIndex().add(child);
+			
+			if ( !oldId.equals(child.id))
+			{
+				csp.getIdIndex().remove(oldId, child);
+				csp.getIdIndex().put(child.id, child);
+			}
+		}
+	}
+	
+	/**
+	 * Adds (or subtracts) the child's share to the totals of this folder and its ancestors.
+	 *
+	 * @param child
+	 *            the child
+	 * @param sign
+	 *            1 when attached, -1 when detached
+	 */
+	private void rollUp(Container<?> child, int sign)
+	{
+		Folder<?> previous;
+		long size;
+		long files;
+		long folders;
+		
+		// the share is taken along with the link that the child's changes follow up the tree, under the same lock,
+		// so a change is either in the share, or goes up through this folder; never both.
+		synchronized (child.totalsLock)
+		{
+			previous = child.countedIn;
+			
+			if ((sign > 0) ? (previous == this) : (previous != this))
+			{
+				return;
+			}
+			
+			child.countedIn = (sign > 0) ? this : null;
+			
+			if (child.isFolder())
+			{
+				Folder<?> folder = (Folder<?>) child;
+				size = folder.totalSize;
+				files = folder.totalFiles;
+				folders = folder.totalFolders + 1;
+			}
+			else
+			{
+				File<?> file = (File<?>) child;
+				
+				if (sign > 0)
+				{
+					file.countedSize = file.size;
+				}
+				
+				size = file.countedSize;
+				files = 1;
+				folders = 0;
+			}
+		}
+		
+		// attached without being detached from another folder first; it's no longer counted there.
+		if ((sign > 0) && (previous != null))
+		{
+			previous.addTotals( -size, -files, -folders);
+		}
+		
+		addTotals(sign * size, sign * files, sign * folders);
+	}
+	
+	/**
+	 * Adds the deltas passed to the totals of this folder and its ancestors.
+	 *
+	 * @param size
+	 *            the size delta
+	 * @param files
+	 *            the files count delta
+	 * @param folders
+	 *            the folders count delta
+	 */
+	protected void addTotals(long size, long files, long folders)
+	{
+		Folder<?> folder = this;
+		
+		// each folder's link up is read under the lock that guards its totals (see rollUp).
+		while (folder != null)
+		{
+			synchronized (folder.totalsLock)
+			{
+				folder.totalSize += size;
+				folder.totalFiles += files;
+				folder.totalFolders += folders;
+				folder = folder.countedIn;
+			}
+		}
+	}
+	
+	/**
+	 * Checks if the file passed is counted in the totals of this folder.
+	 *
+	 * @param file
+	 *            the file
+	 * @return true, if counted
+	 */
+	protected boolean isCounted(File<?> file)
+	{
+		synchronized (file.totalsLock)
+		{
+			return file.countedIn == this;
+		}
+	}
+	
+	/**
+	 * Called after a change in the names in the sub-tree of this folder. Marks the names filters of this folder and its
+	 * ancestors as out of date.
+	 */
+	protected void subtreeChanged()
+	{
+		for (Folder<?> folder = this; folder != null; folder = folder.parent)
+		{
+			FILTER_VERSION.incrementAndGet(folder);
+			folder.subtreeFilter = null;
+		}
+	}
+	
+	/**
+	 * Gets the filter of the names in the sub-tree of this folder, building it if needed from the sub-folders' filters.
+	 * If a sub-folder's filter, or the result, is full, the {@link NameFilter#SATURATED} filter is used.<br />
+	 * Filters are only built for sub-trees that were completely loaded, and only if listings don't expire
+	 * (see {@link #setChildrenTtl(long)}); otherwise, a missing name might just not be listed yet.
+	 *
+	 * @return the filter, or null if not applicable
+	 */
+	public NameFilter getSubtreeFilter()
+	{
+		if ((childrenTtl >= 0) || !isLoaded())
+		{
+			return null;
+		}
+		
+		NameFilter filter = subtreeFilter;
+		
+		if (filter != null)
+		{
+			return filter;
+		}
+		
+		int version = filterVersion;
+		filter = new NameFilter();
+		
+		for (String name : namesIndex.keySet())
+		{
+			filter.add(name);
+		}
+		
+		for (Folder<?> folder : folders.values())
+		{
+			NameFilter folderFilter = folder.getSubtreeFilter();
+			
+			if (folderFilter == null)
+			{
+				return null;
+			}
+			
+			// the union would be full as well; no need to check the rest.
+			if (folderFilter.isSaturated())
+			{
+				filter = NameFilter.SATURATED;
+				break;
+			}
+			
+			filter.merge(folderFilter);
+		}
+		
+		if (filter.isFull())
+		{
+			filter = NameFilter.SATURATED;
+		}
+		
+		subtreeFilter = filter;
+		
+		// changed while building; discard it.
+		if (filterVersion != version)
+		{
+			subtreeFilter = null;
+		}
+		
+		return filter;
+	}
+	
+	/**
+	 * Checks if the name might be in the sub-tree of this folder, using the names filter.
+	 *
+	 * @param name
+	 *            the name
+	 * @return false if the name is definitely not in the sub-tree; true if it might be, or there's no filter
+	 */
+	public boolean mightContainInSubtree(String name)
+	{
+		NameFilter filter = getSubtreeFilter();
+		
+		return (filter == null) || filter.mightContain(Container.foldName(name));
+	}
+	
+	/**
+	 * Checks if the children of this folder are kept in the indices of its CSP (path and ID). Local folders are not indexed.
+	 *
+	 * @return true, if indexed
+	 */
+	protected boolean isIndexed()
+	{
+		return (csp != null) && !isLocal();
+	}
+	
+	/**
+	 * Looks up the ID in the index of the CSP, and makes sure the container found is in the sub-tree of this folder.
+	 * An entry that is no longer in the tree of the CSP (e.g. deleted with its parent) is dropped from the index.
+	 *
+	 * @param id
+	 *            the ID
+	 * @return the container, or null if not in the index
+	 */
+	protected Container<?> searchIndexedId(String id)
+	{
+		if ( !isIndexed() || (id == null))
+		{
+			return null;
+		}
+		
+		Map<String, Container<?>> idIndex = csp.getIdIndex();
+		Container<?> container = idIndex.get(id);
+		
+		if (container == null)
+		{
+			return null;
+		}
+		
+		Folder<?> top = null;
+		
+		for (Folder<?> folder = container.getParent(); folder != null; folder = folder.getParent())
+		{
+			if (folder == this)
+			{
+				return container;
+			}
+			
+			top = folder;
+		}
+		
+		if (top != csp.getRemoteFileTree())
+		{
+			idIndex.remove(id, container);
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Adds (or removes) the IDs of the container and its loaded sub-tree to the ID index of the CSP, so a removed folder
+	 * doesn't leave its descendants behind, and a moved one brings them along.
+	 */
+	private void indexIds(Container<?> container, boolean add)
+	{
+		if (container.id != null)
+		{
+			if (add)
+			{
+				csp.getIdIndex().put(container.id, container);
+			}
+			else
+			{
+				csp.getIdIndex().remove(container.id, container);
+			}
+		}
+		
+		if (container.isFolder())
+		{
+			for (Container<?> child : ((Folder<?>) container).getChildrenList())
+			{
+				indexIds(child, add);
+			}
+		}
+	}
+	
+	/**
+	 * Adds the child to the names index.
+	 */
+	private void indexName(Container<?> child, String name)
+	{
+		if (name == null)
+		{
+			return;
+		}
+		
+		namesIndex.compute(foldName(name), (key, list) ->
+		{
+			List<Container<?>> newList = new ArrayList<Container<?>>((list == null) ? 1 : (list.size() + 1));
+			
+			// folders come first, as the callers check the first result for a folder.
+			if (child.isFolder())
+			{
+				newList.add(child);
+			}
+			
+			if (list != null)
+			{
+				list.stream().filter(container -> container != child).forEach(newList::add);
+			}
+			
+			if ( !child.isFolder())
+			{
+				newList.add(child);
+			}
+			
+			return Collections.unmodifiableList(newList);
+		});
+	}
+	
+	/**
+	 * Removes the child from the names index.
+	 */
+	private void unindexName(Container<?> child, String name)
+	{
+		if (name == null)
+		{
+			return;
+		}
+		
+		namesIndex.computeIfPresent(foldName(name), (key, list) ->
+		{
+			List<Container<?>> newList = list.stream()
+					.filter(container -> container != child)
+					.collect(Collectors.toList());
+			
+			return newList.isEmpty() ? null : Collections.unmodifiableList(newList);
+		});
+	}
+	
+	/**
+	 * Gets the children with the name passed (ignoring case) from the names index, without loading anything.
+	 *
+	 * @param name
+	 *            the name
+	 * @return the children found, folders first
+	 */
+	public List<Container<?>> getChildrenByName(String name)
+	{
+		List<Container<?>> result = (name == null) ? null : namesIndex.get(foldName(name));
+		
+		if (result == null)
+		{
+			return Collections.emptyList();
+		}
+		
+		// a child renamed without going through the setters might still be mapped by its old name.
+		if (result.stream().allMatch(container -> name.equalsIgnoreCase(container.name)))
+		{
+			return result;
+		}
+		
+		return result.stream()
+				.filter(container -> name.equalsIgnoreCase(container.name))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Gets the child with the ID passed from the lists of this folder, without loading anything.
+	 *
+	 * @param id
+	 *            the ID
+	 * @return the child, or null if it isn't in this folder
+	 */
+	public Container<?> getChild(String id)
+	{
+		if (id == null)
+		{
+			return null;
+		}
+		
+		Container<?> child = folders.get(id);
+		
+		return (child == null) ? files.get(id) : child;
+	}
+	
+	// ======================================================================================
+	// #endregion Children indices.
+	// //////////////////////////////////////////////////////////////////////////////////////
+	
 	// //////////////////////////////////////////////////////////////////////////////////////
 	// #region Tree operations.
 	// ======================================================================================
@@ -300,9 +991,9 @@ public abstract class Folder<T> extends Container<T>
 	 * @throws OperationException
 	 *             the operation exception
 	 */
-	public synchronized void buildTree(int numberOfLevels) throws OperationException
+	public void buildTree(int numberOfLevels) throws OperationException
 	{
-		Logger.info(csp.getName() + ": OVERCAST: FOLDER: PROCESSING folder: " + path);
+		Logger.info(csp.getName() + ": OVERCAST: FOLDER: PROCESSING folder: " + getPath());
 		
 		// no more levels to check.
 		if (numberOfLevels < 0)
@@ -312,21 +1003,30 @@ public abstract class Folder<T> extends Container<T>
 		
 		ArrayList<Container<?>> childrenArray = new ArrayList<Container<?>>();
 		
-		try
-		{
-			initBuildTree();
-			buildTreeProcess(numberOfLevels, childrenArray);
-			postBuildTree(numberOfLevels, childrenArray);
-			
-			Logger.info(csp.getName() + ": OVERCAST: FOLDER: PROCESSED folder: " + path);
-		}
-		catch (OperationException e)
+		// only builds are serialised; lookups and other operations on this folder don't wait for it.
+		synchronized (buildLock)
 		{
-			Logger.error(csp.getName() + ": OVERCAST: FOLDER: FAILED in building folder tree: " + path);
-			Logger.except(e);
-			e.printStackTrace();
-			
-			throw new OperationException("Failed to build tree! " + e.getMessage());
+			try
+			{
+				long listed = System.currentTimeMillis();
+				
+				initBuildTree();
+				buildTreeProcess(numberOfLevels, childrenArray);
+				postBuildTree(numberOfLevels, childrenArray);
+				
+				// only fresh once the children are in; the TTL still counts from when they were listed.
+				lastLoaded = listed;
+				
+				Logger.info(csp.getName() + ": OVERCAST: FOLDER: PROCESSED folder: " + getPath());
+			}
+			catch (OperationException e)
+			{
+				Logger.error(csp.getName() + ": OVERCAST: FOLDER: FAILED in building folder tree: " + getPath());
+				Logger.except(e);
+				e.printStackTrace();
+				
+				throw new OperationException("Failed to build tree! " + e.getMessage());
+			}
 		}
 	}
 	
@@ -358,7 +1058,7 @@ public abstract class Folder<T> extends Container<T>
 	 */
 	protected void initBuildTree() throws OperationException
 	{
-		Logger.info(csp.getName() + ": OVERCAST: FOLDER: BUILDING folder tree: " + path);
+		Logger.info(csp.getName() + ": OVERCAST: FOLDER: BUILDING folder tree: " + getPath());
 		
 		// going to work on a branch, so grab a thread.
 		try
@@ -399,7 +1099,7 @@ public abstract class Folder<T> extends Container<T>
 		slots.release();
 		
 		// add the resulting children to this folder's list
-		childrenArray.stream().forEach(container -> add(container));
+		addAll(childrenArray);
 		
 		// use a service to 'join' threads and not return before finishing the whole tree build.
 		CompletionService<Boolean> service = new ExecutorCompletionService<Boolean>(executor);
@@ -467,6 +1167,45 @@ public abstract class Folder<T> extends Container<T>
 		return true;		// this is a folder!
 	}
 	
+	/**
+	 * Gets the path, caching it in this folder, as it's used to derive the paths of the children.<br />
+	 * The cached path is valid as long as the parent returns the very same path object it was derived from; so, renaming
+	 * or moving a folder invalidates the paths of its sub-tree only, without walking it, and without a shared lock.
+	 *
+	 * @see com.yagasoft.overcast.base.container.Container#getPath()
+	 */
+	@Override
+	public String getPath()
+	{
+		Folder<?> currentParent = parent;
+		
+		if ((currentParent == null) || !cachingPaths)
+		{
+			return super.getPath();
+		}
+		
+		String parentPath = currentParent.getPath();
+		CachedPath cached = cachedPath;
+		
+		if ((cached == null) || (cached.parentPath != parentPath))
+		{
+			cached = new CachedPath(joinPath(parentPath, name), parentPath);
+			cachedPath = cached;
+		}
+		
+		return cached.path;
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Container#pathChanged()
+	 */
+	@Override
+	protected void pathChanged()
+	{
+		super.pathChanged();
+		cachedPath = null;
+	}
+	
 	/**
 	 * Update from where the folder resides. It updates the info of the folder from the source itself
 	 * , and can be done recursively (tree). It refreshes the children list if 'contents' flag is true.
@@ -480,6 +1219,114 @@ public abstract class Folder<T> extends Container<T>
 	 */
 	public abstract void updateFromSource(boolean folderContents, boolean recursively) throws OperationException;
 	
+	// //////////////////////////////////////////////////////////////////////////////////////
+	// #region Freshness.
+	// ======================================================================================
+	
+	/**
+	 * Loads the children of this folder from the source if they were never listed, or if the listing is older than
+	 * {@link #childrenTtl}. Concurrent callers share a single listing in flight.
+	 *
+	 * @throws OperationException
+	 *             the operation exception
+	 */
+	public void loadChildren() throws OperationException
+	{
+		// nothing to do, or the listing in progress is ours (called from within the listing itself).
+		if (isFresh() || (loadingThread == Thread.currentThread()))
+		{
+			return;
+		}
+		
+		FutureTask<Void> task = new FutureTask<Void>(() ->
+		{
+			loadingThread = Thread.currentThread();
+			
+			try
+			{
+				long listed = System.currentTimeMillis();
+				
+				updateFromSource(true, false);
+				lastLoaded = listed;
+				return null;
+			}
+			finally
+			{
+				loadingThread = null;
+			}
+		});
+		
+		// if no one is listing this folder, then do it; else, wait for the one listing it.
+		if (loading.compareAndSet(null, task))
+		{
+			try
+			{
+				task.run();
+			}
+			finally
+			{
+				loading.set(null);
+			}
+		}
+		else
+		{
+			task = loading.get();
+			
+			// the other listing has just finished, so check again.
+			if (task == null)
+			{
+				loadChildren();
+				return;
+			}
+		}
+		
+		try
+		{
+			task.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new OperationException("Interrupted while loading children of: " + getPath());
+		}
+		catch (ExecutionException e)
+		{
+			throw new OperationException("Failed to load children! " + e.getCause().getMessage());
+		}
+	}
+	
+	/**
+	 * Checks if the children of this folder were listed from the source at least once.
+	 *
+	 * @return true, if loaded
+	 */
+	public boolean isLoaded()
+	{
+		return lastLoaded > 0;
+	}
+	
+	/**
+	 * Checks if the children of this folder were loaded, and the listing hasn't exceeded its time-to-live.
+	 *
+	 * @return true, if fresh
+	 */
+	public boolean isFresh()
+	{
+		return isLoaded() && ((childrenTtl < 0) || ((System.currentTimeMillis() - lastLoaded) < childrenTtl));
+	}
+	
+	/**
+	 * Marks the children listing as stale, so the next lookup lists the folder from the source again.
+	 */
+	public void invalidate()
+	{
+		lastLoaded = 0;
+	}
+	
+	// ======================================================================================
+	// #endregion Freshness.
+	// //////////////////////////////////////////////////////////////////////////////////////
+	
 	// //////////////////////////////////////////////////////////////////////////////////////
 	// #region Searching.
 	// ======================================================================================
@@ -497,16 +1344,25 @@ public abstract class Folder<T> extends Container<T>
 	 */
 	public <S extends Container<?>> S searchById(String id, boolean recursively)
 	{
-		Logger.info(csp.getName() + ": OVERCAST: FOLDER: searching: " + id + ", in: " + path);
+		Logger.info(csp.getName() + ": OVERCAST: FOLDER: searching: " + id + ", in: " + getPath());
 		
-		try
+		// the ID index covers the whole tree, so no need to list anything if it's there.
+		if (recursively)
 		{
-			// save some time if this folder was already loaded before.
-			if (getChildrenList().isEmpty())
+			Container<?> indexed = searchIndexedId(id);
+			
+			if (indexed != null)
 			{
-				updateFromSource(true, false);
+				Logger.info(csp.getName() + ": OVERCAST: FOLDER: SEARCH: FOUND: " + indexed.getPath() + ", in: " + getPath());
+				return (S) indexed;
 			}
 		}
+		
+		try
+		{
+			// save some time if this folder was already loaded before.
+			loadChildren();
+		}
 		catch (OperationException e)
 		{
 			Logger.error(csp.getName() + ": OVERCAST: FOLDER: SEARCH: FAILED to update from source " + id
@@ -515,16 +1371,19 @@ public abstract class Folder<T> extends Container<T>
 			e.printStackTrace();
 		}
 		
-		// if the folders list contains the passed ID (mapped), return it.
-		if (folders.containsKey(id))
+		// if the folders list contains the passed ID (mapped), return it; else, check the files list.
+		// (a single read of each map, as the children might change concurrently)
+		Container<?> found = (id == null) ? null : folders.get(id);
+		
+		if ((found == null) && (id != null))
 		{
-			Logger.info(csp.getName() + ": OVERCAST: FOLDER: SEARCH: FOUND: " + folders.get(id).path + ", in: " + path);
-			return (S) folders.get(id);
+			found = files.get(id);
 		}
-		else if (files.containsKey(id))
-		{	// else, check the files list.
-			Logger.info(csp.getName() + ": OVERCAST: FOLDER: SEARCH: FOUND: " + files.get(id).path + ", in: " + path);
-			return (S) files.get(id);
+		
+		if (found != null)
+		{
+			Logger.info(csp.getName() + ": OVERCAST: FOLDER: SEARCH: FOUND: " + found.getPath() + ", in: " + getPath());
+			return (S) found;
 		}
 		else if (recursively)
 		{	// else, if recursive search is wanted, check sub-folders.
@@ -556,15 +1415,18 @@ public abstract class Folder<T> extends Container<T>
 	 */
 	public List<Container<?>> searchByName(String name, boolean partial, boolean recursively)
 	{
-		Logger.info(csp.getName() + ": OVERCAST: FOLDER: searching " + name + " in " + path);
+		Logger.info(csp.getName() + ": OVERCAST: FOLDER: searching " + name + " in " + getPath());
+		
+		// nothing in this sub-tree has this name; skip it without listing anything.
+		if ( !partial && recursively && !mightContainInSubtree(name))
+		{
+			return new ArrayList<Container<?>>();
+		}
 		
 		try
 		{
 			// save some time if this folder was already loaded before.
-			if (getChildrenList().isEmpty())
-			{
-				updateFromSource(true, false);
-			}
+			loadChildren();
 		}
 		catch (OperationException e)
 		{
@@ -574,28 +1436,39 @@ public abstract class Folder<T> extends Container<T>
 			e.printStackTrace();
 		}
 		
+		// the name index covers the whole tree, if it's all loaded; no need to go through each folder.
+		if (partial && recursively && isIndexed() && csp.isFullRemoteTreeLoaded())
+		{
+			List<Container<?>> indexed = csp.getNameIndex().search(name, this, Integer.MAX_VALUE);
+			
+			if (indexed != null)
+			{
+				Logger.info(csp.getName() + ": OVERCAST: FOLDER: SEARCH: FOUND " + indexed.size() + " in index, in " + getPath());
+				return indexed;
+			}
+		}
+		
 		List<Container<?>> result = new ArrayList<Container<?>>();
 		
-		// same as 'searchById', in THIS folder only ...
-		result.addAll(getChildrenList().parallelStream()		// get all children as a stream
-				.filter(container ->
-				{
-					if (partial)
-					{
-						// keep containers with a similar name
-						return container.name.toLowerCase().contains(name.toLowerCase());
-					}
-						else
-						{
-							// keep only containers with a matching name
-							return container.name.equalsIgnoreCase(name);
-						}
-					})
-				.collect(Collectors.toList()));		// convert filtered result to an array
+		if (partial)
+		{
+			String lowerName = name.toLowerCase();
+			
+			// same as 'searchById', in THIS folder only ...
+			result.addAll(getChildrenList().parallelStream()		// get all children as a stream
+					// keep containers with a similar name
+					.filter(container -> container.name.toLowerCase().contains(lowerName))
+					.collect(Collectors.toList()));		// convert filtered result to an array
+		}
+		else
+		{
+			// keep only containers with a matching name, using the index.
+			result.addAll(getChildrenByName(name));
+		}
 		
 		if ( !result.isEmpty())
 		{
-			Logger.info(csp.getName() + ": OVERCAST: FOLDER: SEARCH: FOUND " + result.get(0) + " in " + path);
+			Logger.info(csp.getName() + ": OVERCAST: FOLDER: SEARCH: FOUND " + result.get(0) + " in " + getPath());
 		}
 		
 		// search sub-folders
@@ -619,50 +1492,75 @@ public abstract class Folder<T> extends Container<T>
 	// ======================================================================================
 	
 	/**
-	 * Removes the obsolete members from the list in this folder using the fresh list sent as an argument.
+	 * Reconciles the children of this folder with a fresh listing of IDs from the source: removes the obsolete members, and
+	 * returns what's new, so only those need to be created.
 	 *
 	 * @param ids
 	 *            Fresh list of folders and files IDs.
-	 * @param filter
-	 *            Filter the sent list from already existing members in this folder (to allow faster parsing of new ones). This
-	 *            removes the duplicates in the list SENT when compared to this folder's list.
+	 * @return the diff between this folder's children and the listing
 	 */
-	public void removeObsolete(List<String> ids, boolean filter)
+	public ChildrenDiff reconcile(Collection<String> ids)
 	{
-		Logger.info(csp.getName() + ": OVERCAST: FOLDER: REMOVING OBSOLETE containers: " + path);
+		List<String> existing = new ArrayList<String>(folders.keySet());
+		existing.addAll(files.keySet());
 		
-		// combine lists in this folder (IDs only, not containers themselves).
-		List<String> containers = new ArrayList<String>();
-		containers.addAll(folders.keySet());
-		containers.addAll(files.keySet());
+		return reconcile(ChildrenDiff.compute(existing, ids), true, true);
+	}
+	
+	/**
+	 * Same as {@link #reconcile(Collection)}, but for folders only.
+	 *
+	 * @param folderIds
+	 *            Fresh list of folders IDs.
+	 * @return the diff between this folder's sub-folders and the listing
+	 */
+	public ChildrenDiff reconcileFolders(Collection<String> folderIds)
+	{
+		return reconcile(ChildrenDiff.compute(folders.keySet(), folderIds), true, false);
+	}
+	
+	/**
+	 * Same as {@link #reconcile(Collection)}, but for files only.
+	 *
+	 * @param fileIds
+	 *            Fresh list of files IDs.
+	 * @return the diff between this folder's files and the listing
+	 */
+	public ChildrenDiff reconcileFiles(Collection<String> fileIds)
+	{
+		return reconcile(ChildrenDiff.compute(files.keySet(), fileIds), false, true);
+	}
+	
+	/**
+	 * Removes the obsolete children in the diff from the maps chosen.
+	 */
+	private ChildrenDiff reconcile(ChildrenDiff diff, boolean fromFolders, boolean fromFiles)
+	{
+		Logger.info(csp.getName() + ": OVERCAST: FOLDER: RECONCILING children: " + getPath() + ", " + diff);
 		
-		// go through the combined list.
-		containers.stream()
-				// keep only the containers in the list sent (not deleted on server)
-				.filter(container -> !ids.contains(container))
-				.forEach(container ->
-				{
-					// remove it.
-						folders.remove(container);
-						files.remove(container);
-						
-						Logger.info(csp.getName() + ": OVERCAST: FOLDER: REMOVED OBSOLETE: " + container);
-					});
-		
-		// if it's required to filter (remove commons) the sent list as well ...
-		if (filter)
+		for (String id : diff.getRemoved())
 		{
-			// go through the combined list again, but this time just remove from the sent list that exist in this folder.
-			containers.stream()
-					.forEach(container ->
-					{
-						ids.remove(container);
-						
-						Logger.info(csp.getName() + ": OVERCAST: FOLDER: FILTERING existing: " + container);
-					});
+			removeChild(id, fromFolders, fromFiles);
+			
+			Logger.info(csp.getName() + ": OVERCAST: FOLDER: REMOVED OBSOLETE: " + id);
 		}
 		
-		Logger.info(csp.getName() + ": OVERCAST: FOLDER: FINISHED removing OBSOLETE containers: " + path);
+		return diff;
+	}
+	
+	/**
+	 * Removes the obsolete members from the list in this folder using the fresh list sent as an argument.
+	 *
+	 * @param ids
+	 *            Fresh list of folders and files IDs.
+	 * @param filter
+	 *            Filter the sent list from already existing members in this folder (to allow faster parsing of new ones). This
+	 *            removes the duplicates in the list SENT when compared to this folder's list.
+	 * @see #reconcile(Collection)
+	 */
+	public void removeObsolete(List<String> ids, boolean filter)
+	{
+		filter(ids, reconcile(ids), filter);
 	}
 	
 	/**
@@ -673,33 +1571,11 @@ public abstract class Folder<T> extends Container<T>
 	 * @param filter
 	 *            Filter the sent list from already existing members in this folder (to allow faster parsing of new ones). This
 	 *            removes the duplicates in the list SENT when compared to this folder's list.
+	 * @see #reconcileFolders(Collection)
 	 */
 	public void removeObsoleteFolders(List<String> folderIds, boolean filter)
 	{
-		Logger.info(csp.getName() + ": OVERCAST: FOLDER: removing obsolete folders: " + path);
-		
-		List<String> foldersList = new ArrayList<String>();
-		foldersList.addAll(folders.keySet());
-		
-		foldersList.stream()
-				.filter(folder -> !folderIds.contains(folder))
-				.forEach(folder ->
-				{
-					folders.remove(folder);
-					
-					Logger.info(csp.getName() + ": OVERCAST: FOLDER: REMOVED OBSOLETE: " + folder);
-				});
-		
-		if (filter)
-		{
-			foldersList.stream()
-					.forEach(folder ->
-					{
-						folderIds.remove(folder);
-						
-						Logger.info(csp.getName() + ": OVERCAST: FOLDER: FILTERING existing: " + folder);
-					});
-		}
+		filter(folderIds, reconcileFolders(folderIds), filter);
 	}
 	
 	/**
@@ -710,32 +1586,23 @@ public abstract class Folder<T> extends Container<T>
 	 * @param filter
 	 *            Filter the sent list from already existing members in this folder (to allow faster parsing of new ones). This
 	 *            removes the duplicates in the list SENT when compared to this folder's list.
+	 * @see #reconcileFiles(Collection)
 	 */
 	public void removeObsoleteFiles(List<String> fileIds, boolean filter)
 	{
-		Logger.info(csp.getName() + ": OVERCAST: FOLDER: removing obsolete files: " + path);
-		
-		List<String> filesList = new ArrayList<String>();
-		filesList.addAll(folders.keySet());
-		
-		filesList.stream()
-				.filter(file -> !fileIds.contains(file))
-				.forEach(file ->
-				{
-					files.remove(file);
-					
-					Logger.info(csp.getName() + ": OVERCAST: FOLDER: REMOVED OBSOLETE: " + file);
-				});
-		
+		filter(fileIds, reconcileFiles(fileIds), filter);
+	}
+	
+	/**
+	 * Keeps only the new IDs in the list sent, if required.
+	 */
+	private void filter(List<String> ids, ChildrenDiff diff, boolean filter)
+	{
 		if (filter)
 		{
-			filesList.stream()
-					.forEach(file ->
-					{
-						fileIds.remove(file);
-						
-						Logger.info(csp.getName() + ": OVERCAST: FOLDER: FILTERING existing: " + file);
-					});
+			ids.retainAll(diff.getAdded());
+			
+			Logger.info(csp.getName() + ": OVERCAST: FOLDER: FILTERED existing: " + diff.getUnchanged().size());
 		}
 	}
 	
@@ -835,6 +1702,16 @@ public abstract class Folder<T> extends Container<T>
 		return files.values().toArray(new File<?>[files.size()]);
 	}
 	
+	/**
+	 * Checks if this folder has sub-folders loaded.
+	 *
+	 * @return true, if it has sub-folders
+	 */
+	public boolean hasFolders()
+	{
+		return !folders.isEmpty();
+	}
+	
 	/**
 	 * Gets the children iterator, including folders and files.
 	 *
@@ -886,4 +1763,113 @@ public abstract class Folder<T> extends Container<T>
 		Folder.executor = executor;
 	}
 	
+	/**
+	 * @return the children listing time-to-live in ms
+	 */
+	public static long getChildrenTtl()
+	{
+		return childrenTtl;
+	}
+	
+	/**
+	 * @param childrenTtl
+	 *            the children listing time-to-live in ms to set; negative to never expire
+	 */
+	public static void setChildrenTtl(long childrenTtl)
+	{
+		Folder.childrenTtl = childrenTtl;
+	}
+	
+	/**
+	 * @return whether the derived paths of folders are cached
+	 */
+	public static boolean isCachingPaths()
+	{
+		return cachingPaths;
+	}
+	
+	/**
+	 * @param cachingPaths
+	 *            cache the derived paths of folders in the folders themselves; if false, they're derived on every call
+	 */
+	public static void setCachingPaths(boolean cachingPaths)
+	{
+		Folder.cachingPaths = cachingPaths;
+	}
+	
+	/**
+	 * Gets the total size of the files in the sub-tree of this folder, as loaded in memory; kept up to date as children
+	 * change, so it costs nothing. Use {@link #calculateSize()} to get the size from the source.
+	 *
+	 * @return the total size
+	 */
+	public long getTotalSize()
+	{
+		return totalSize;
+	}
+	
+	/**
+	 * Gets the number of files in the sub-tree of this folder, as loaded in memory.
+	 *
+	 * @return the total files count
+	 */
+	public long getTotalFiles()
+	{
+		return totalFiles;
+	}
+	
+	/**
+	 * Gets the number of folders in the sub-tree of this folder (excluding itself), as loaded in memory.
+	 *
+	 * @return the total folders count
+	 */
+	public long getTotalFolders()
+	{
+		return totalFolders;
+	}
+	
+	/**
+	 * @return the node of this folder in the path index
+	 */
+	public PathIndex.Node getPathNode()
+	{
+		return pathNode;
+	}
+	
+	/**
+	 * @param pathNode
+	 *            the path index node to set
+	 */
+	public void setPathNode(PathIndex.Node pathNode)
+	{
+		this.pathNode = pathNode;
+	}
+	
+	/**
+	 * @return the time of the last listing of the children, in ms since 1970
+	 */
+	public long getLastLoaded()
+	{
+		return lastLoaded;
+	}
+	
+	/**
+	 * A derived path, and the parent's path it was derived from.
+	 */
+	protected static final class CachedPath
+	{
+		
+		/** The path. */
+		protected final String	path;
+		
+		/** The parent's path, compared by identity to tell if it changed. */
+		protected final String	parentPath;
+		
+		protected CachedPath(String path, String parentPath)
+		{
+			this.path = path;
+			this.parentPath = parentPath;
+		}
+	}
+	
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.container/NameFilter.java
+ *
+ *			Modified: 19-Oct-2026 (17:31:09)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.container;
+
+
+/**
+ * A fixed-size Bloom filter of case-folded names.<br />
+ * It might give false positives (a name that was never added), but never false negatives. All filters have the same
+ * size, so a folder's filter is the union (OR) of its sub-folders' filters plus its own children's names.<br />
+ * As a union only grows, a filter with more than {@link #MAX_FILL} of its bits set is useless (almost every name is
+ * a 'maybe'); such a sub-tree gets the {@link #SATURATED} filter instead, which ends the merging up the tree.
+ */
+public class NameFilter
+{
+	
+	/** Number of bits in each filter; must be a power of two. */
+	public static final int			BITS		= 2048;
+	
+	/** Number of bits set for each name. */
+	public static final int			HASHES		= 3;
+	
+	/**
+	 * Highest ratio of bits set for a useful filter. At one half, about one in eight names that were never added is
+	 * a false positive.
+	 */
+	public static final double		MAX_FILL	= 0.5;
+	
+	/** The filter of sub-trees with too many names to filter; it might contain any name. */
+	public static final NameFilter	SATURATED	= new NameFilter(true);
+	
+	/** The bits. */
+	protected final long[]			bits;
+	
+	/** Might this filter contain any name? */
+	protected final boolean			saturated;
+	
+	/**
+	 * Instantiates a new empty filter.
+	 */
+	public NameFilter()
+	{
+		this(false);
+	}
+	
+	private NameFilter(boolean saturated)
+	{
+		this.saturated = saturated;
+		bits = saturated ? null : new long[BITS / 64];
+	}
+	
+	/**
+	 * Adds the name to the filter.
+	 *
+	 * @param foldedName
+	 *            the name, case-folded (see {@link Container#foldName(String)})
+	 */
+	public void add(String foldedName)
+	{
+		if (saturated)
+		{
+			return;
+		}
+		
+		int hash = foldedName.hashCode();
+		int step = mix(hash);
+		
+		for (int i = 0; i < HASHES; i++)
+		{
+			int bit = (hash + (i * step)) & (BITS - 1);
+			bits[bit >>> 6] |= 1L << bit;
+		}
+	}
+	
+	/**
+	 * Checks if the name might have been added to the filter.
+	 *
+	 * @param foldedName
+	 *            the name, case-folded
+	 * @return false if the name was definitely not added
+	 */
+	public boolean mightContain(String foldedName)
+	{
+		if (saturated)
+		{
+			return true;
+		}
+		
+		int hash = foldedName.hashCode();
+		int step = mix(hash);
+		
+		for (int i = 0; i < HASHES; i++)
+		{
+			int bit = (hash + (i * step)) & (BITS - 1);
+			
+			if ((bits[bit >>> 6] & (1L << bit)) == 0)
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Adds all the names in the filter passed to this one. A saturated filter can't be merged; use {@link #SATURATED}
+	 * for the result instead.
+	 *
+	 * @param filter
+	 *            the filter
+	 */
+	public void merge(NameFilter filter)
+	{
+		if (saturated || filter.saturated)
+		{
+			throw new IllegalStateException("Can't merge a saturated filter.");
+		}
+		
+		for (int i = 0; i < bits.length; i++)
+		{
+			bits[i] |= filter.bits[i];
+		}
+	}
+	
+	/**
+	 * Checks if the filter has too many bits set to be useful (see {@link #MAX_FILL}).
+	 *
+	 * @return true, if it's saturated, or more than the maximum is set
+	 */
+	public boolean isFull()
+	{
+		if (saturated)
+		{
+			return true;
+		}
+		
+		int set = 0;
+		
+		for (long word : bits)
+		{
+			set += Long.bitCount(word);
+		}
+		
+		return set > (BITS * MAX_FILL);
+	}
+	
+	/**
+	 * @return true, if this filter might contain any name
+	 */
+	public boolean isSaturated()
+	{
+		return saturated;
+	}
+	
+	/**
+	 * A second hash derived from the first, odd so it visits different bits.
+	 */
+	private static int mix(int hash)
+	{
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		
+		return hash | 1;
+	}
+	
+}
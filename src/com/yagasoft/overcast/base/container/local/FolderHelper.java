@@ -48,11 +48,16 @@ package com.yagasoft.overcast.base.container.local;
 
 import static java.nio.file.FileVisitResult.CONTINUE;
 import static java.nio.file.FileVisitResult.SKIP_SUBTREE;
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
 import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 import java.io.IOException;
 import java.nio.file.CopyOption;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.FileSystemLoopException;
 import java.nio.file.FileVisitResult;
@@ -60,10 +65,23 @@ import java.nio.file.FileVisitor;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.yagasoft.logger.Logger;
 
 
 /**
@@ -99,7 +117,10 @@ public final class FolderHelper
 	
 	/**
 	 * A {@code FileVisitor} that copies a file-tree ("cp -r")
+	 *
+	 * @deprecated copies one entry at a time; use {@link FolderHelper#copyTree(Path, Path, boolean, boolean)} instead.
 	 */
+	@Deprecated
 	public static class TreeCopier implements FileVisitor<Path>
 	{
 		
@@ -207,6 +228,12 @@ public final class FolderHelper
 		}
 	}
 	
+	/**
+	 * A {@code FileVisitor} that moves a file-tree.
+	 *
+	 * @deprecated moves one entry at a time; use {@link FolderHelper#moveTree(Path, Path, boolean)} instead.
+	 */
+	@Deprecated
 	public static class TreeMover implements FileVisitor<Path>
 	{
 		
@@ -312,6 +339,12 @@ public final class FolderHelper
 		}
 	}
 	
+	/**
+	 * A {@code FileVisitor} that deletes a file-tree.
+	 *
+	 * @deprecated deletes one entry at a time; use {@link FolderHelper#deleteTree(Path)} instead.
+	 */
+	@Deprecated
 	public static class TreeDeleter implements FileVisitor<Path>
 	{
 		
@@ -366,10 +399,518 @@ public final class FolderHelper
 	// #endregion delete.
 	// --------------------------------------------------------------------------------------
 	
+	// --------------------------------------------------------------------------------------
+	// #region parallel.
+	
+	/** Number of entries copied, moved or deleted at the same time by the parallel operations. */
+	private static volatile int		parallelism	= Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+	
+	/** The pool running the parallel operations; created on first use, and replaced when the parallelism changes. */
+	private static ForkJoinPool		pool;
+	
+	/**
+	 * Copies the folder passed to the target path (the target is the copy itself, not its parent), processing entries in
+	 * parallel. Each directory is created before anything is copied into it, and its time is fixed after its content is
+	 * done. Links aren't followed.
+	 *
+	 * @param source
+	 *            Folder to copy.
+	 * @param target
+	 *            Path of the copy.
+	 * @param overwrite
+	 *            Overwrite existing files, or skip them.
+	 * @param preserve
+	 *            Copy the attributes as well.
+	 * @return the entries that failed; empty if all went well
+	 */
+	public static List<Failure> copyTree(Path source, Path target, boolean overwrite, boolean preserve)
+	{
+		Queue<Failure> failures = new ConcurrentLinkedQueue<Failure>();
+		run(new CopyTask(source, target, overwrite, preserve, failures));
+		return new ArrayList<Failure>(failures);
+	}
+	
+	/**
+	 * Moves the folder passed to the target path (the target is the moved folder itself, not its parent).<br />
+	 * If the target doesn't exist, and it's on the same file store as the source, the folder is moved as a whole in a
+	 * single atomic rename. Otherwise (another device, or merging into an existing folder), entries are moved in parallel;
+	 * each directory is created before anything is moved into it, and the source directory is deleted after its content is
+	 * moved. Links aren't followed.
+	 *
+	 * @param source
+	 *            Folder to move.
+	 * @param target
+	 *            New path of the folder.
+	 * @param overwrite
+	 *            Overwrite existing files, or skip them (and keep them in the source).
+	 * @return the entries that failed; empty if all went well
+	 */
+	public static List<Failure> moveTree(Path source, Path target, boolean overwrite)
+	{
+		if (rename(source, target))
+		{
+			return new ArrayList<Failure>();
+		}
+		
+		Queue<Failure> failures = new ConcurrentLinkedQueue<Failure>();
+		run(new MoveTask(source, target, overwrite, failures));
+		return new ArrayList<Failure>(failures);
+	}
+	
+	/**
+	 * Moves the source to the target in a single atomic rename, if they're on the same file store, and the target doesn't
+	 * exist.
+	 *
+	 * @return true, if moved
+	 */
+	private static boolean rename(Path source, Path target)
+	{
+		try
+		{
+			if ((target.getParent() == null) || Files.exists(target, NOFOLLOW_LINKS)
+					|| !Files.getFileStore(source).equals(Files.getFileStore(target.getParent())))
+			{
+				return false;
+			}
+			
+			Files.move(source, target, ATOMIC_MOVE);
+			
+			Logger.info("OVERCAST: FOLDERHELPER: renamed: " + source + ", to: " + target);
+			
+			return true;
+		}
+		catch (IOException e)
+		{
+			// not supported, or the target was created meanwhile; the walk will deal with it.
+			Logger.info("OVERCAST: FOLDERHELPER: can't rename, moving entries: " + source + ", " + e);
+			return false;
+		}
+	}
+	
+	/**
+	 * Deletes the folder passed with its content, deleting entries in parallel. Each directory is deleted after its content.
+	 * Links are deleted, not followed.
+	 *
+	 * @param folder
+	 *            Folder to delete.
+	 * @return the entries that failed; empty if all went well
+	 */
+	public static List<Failure> deleteTree(Path folder)
+	{
+		Queue<Failure> failures = new ConcurrentLinkedQueue<Failure>();
+		run(new DeleteTask(folder, failures));
+		return new ArrayList<Failure>(failures);
+	}
+	
+	/**
+	 * Runs the task passed in the shared pool, limited to {@link #parallelism} threads, and waits for it.
+	 */
+	private static <V> V run(ForkJoinTask<V> task)
+	{
+		while (true)
+		{
+			ForkJoinPool current = getPool();
+			
+			try
+			{
+				return current.invoke(task);
+			}
+			catch (RejectedExecutionException e)
+			{
+				// replaced by a change in the parallelism just now; run it in the new pool.
+				if (current == getPool())
+				{
+					throw e;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return the shared pool, created if needed
+	 */
+	private static synchronized ForkJoinPool getPool()
+	{
+		if (pool == null)
+		{
+			pool = new ForkJoinPool(parallelism);
+		}
+		
+		return pool;
+	}
+	
+	/**
+	 * @return the number of entries processed at the same time by the parallel operations
+	 */
+	public static int getParallelism()
+	{
+		return parallelism;
+	}
+	
+	/**
+	 * @param parallelism
+	 *            the number of entries processed at the same time by the parallel operations
+	 */
+	public static synchronized void setParallelism(int parallelism)
+	{
+		if (parallelism < 1)
+		{
+			throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		}
+		
+		if (parallelism == FolderHelper.parallelism)
+		{
+			return;
+		}
+		
+		FolderHelper.parallelism = parallelism;
+		
+		// the operations running in the old pool finish there; the next ones get a new pool.
+		if (pool != null)
+		{
+			pool.shutdown();
+			pool = null;
+		}
+	}
+	
+	/**
+	 * An entry that couldn't be processed by a parallel operation, with the reason.
+	 */
+	public static final class Failure
+	{
+		
+		private final Path			path;
+		private final IOException	exception;
+		
+		private Failure(Path path, IOException exception)
+		{
+			this.path = path;
+			this.exception = exception;
+		}
+		
+		/**
+		 * @return the path of the entry that failed
+		 */
+		public Path getPath()
+		{
+			return path;
+		}
+		
+		/**
+		 * @return the exception
+		 */
+		public IOException getException()
+		{
+			return exception;
+		}
+		
+		@Override
+		public String toString()
+		{
+			return path + ": " + exception;
+		}
+	}
+	
+	/**
+	 * A task working on an entry in a tree. For a directory, it forks a task for each entry in it.
+	 */
+	private abstract static class TreeTask extends RecursiveAction
+	{
+		
+		private static final long		serialVersionUID	= -4173318202736429175L;
+		
+		protected final Path			source;
+		protected final Queue<Failure>	failures;
+		
+		private TreeTask(Path source, Queue<Failure> failures)
+		{
+			this.source = source;
+			this.failures = failures;
+		}
+		
+		@Override
+		protected void compute()
+		{
+			BasicFileAttributes attributes;
+			
+			try
+			{
+				attributes = Files.readAttributes(source, BasicFileAttributes.class, NOFOLLOW_LINKS);
+				
+				if ( !attributes.isDirectory())
+				{
+					processFile();
+					return;
+				}
+				
+				// nothing should be done inside the directory if this fails.
+				preDirectory(attributes);
+			}
+			catch (IOException e)
+			{
+				fail(source, e);
+				return;
+			}
+			
+			List<TreeTask> tasks = new ArrayList<TreeTask>();
+			
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(source))
+			{
+				for (Path entry : stream)
+				{
+					tasks.add(fork(entry));
+				}
+			}
+			catch (IOException | DirectoryIteratorException e)
+			{
+				fail(source, (e instanceof DirectoryIteratorException) ? ((DirectoryIteratorException) e).getCause()
+						: (IOException) e);
+			}
+			
+			invokeAll(tasks);
+			
+			try
+			{
+				postDirectory(attributes);
+			}
+			catch (IOException e)
+			{
+				fail(source, e);
+			}
+		}
+		
+		/**
+		 * Records a failure.
+		 */
+		protected void fail(Path path, IOException e)
+		{
+			Logger.error("OVERCAST: FOLDERHELPER: failed: " + path + ", " + e);
+			failures.add(new Failure(path, e));
+		}
+		
+		/**
+		 * Creates the task for an entry in the directory.
+		 */
+		protected abstract TreeTask fork(Path entry);
+		
+		/**
+		 * Processes the file (or link).
+		 */
+		protected abstract void processFile() throws IOException;
+		
+		/**
+		 * Processes the directory before its content.
+		 */
+		protected abstract void preDirectory(BasicFileAttributes attributes) throws IOException;
+		
+		/**
+		 * Processes the directory after its content.
+		 */
+		protected abstract void postDirectory(BasicFileAttributes attributes) throws IOException;
+	}
+	
+	/**
+	 * Copies an entry in a tree.
+	 */
+	private static final class CopyTask extends TreeTask
+	{
+		
+		private static final long	serialVersionUID	= 2861203495318720519L;
+		
+		private final Path			target;
+		private final boolean		overwrite;
+		private final boolean		preserve;
+		
+		private CopyTask(Path source, Path target, boolean overwrite, boolean preserve, Queue<Failure> failures)
+		{
+			super(source, failures);
+			this.target = target;
+			this.overwrite = overwrite;
+			this.preserve = preserve;
+		}
+		
+		@Override
+		protected TreeTask fork(Path entry)
+		{
+			return new CopyTask(entry, target.resolve(entry.getFileName()), overwrite, preserve, failures);
+		}
+		
+		@Override
+		protected void processFile() throws IOException
+		{
+			if ( !overwrite && Files.exists(target, NOFOLLOW_LINKS))
+			{
+				return;
+			}
+			
+			CopyOption[] options = (preserve) ?
+					new CopyOption[] { COPY_ATTRIBUTES, REPLACE_EXISTING, NOFOLLOW_LINKS } :
+					new CopyOption[] { REPLACE_EXISTING, NOFOLLOW_LINKS };
+			
+			Files.copy(source, target, options);
+		}
+		
+		@Override
+		protected void preDirectory(BasicFileAttributes attributes) throws IOException
+		{
+			try
+			{
+				Files.createDirectory(target);
+			}
+			catch (FileAlreadyExistsException e)
+			{
+				if ( !Files.isDirectory(target, NOFOLLOW_LINKS))
+				{
+					throw e;
+				}
+			}
+		}
+		
+		@Override
+		protected void postDirectory(BasicFileAttributes attributes) throws IOException
+		{
+			// fix up modification time of directory when done
+			if (preserve)
+			{
+				Files.setLastModifiedTime(target, attributes.lastModifiedTime());
+			}
+		}
+	}
+	
+	/**
+	 * Moves an entry in a tree.
+	 */
+	private static final class MoveTask extends TreeTask
+	{
+		
+		private static final long	serialVersionUID	= -1380795167451102932L;
+		
+		private final Path			target;
+		private final boolean		overwrite;
+		
+		private MoveTask(Path source, Path target, boolean overwrite, Queue<Failure> failures)
+		{
+			super(source, failures);
+			this.target = target;
+			this.overwrite = overwrite;
+		}
+		
+		@Override
+		protected TreeTask fork(Path entry)
+		{
+			return new MoveTask(entry, target.resolve(entry.getFileName()), overwrite, failures);
+		}
+		
+		@Override
+		protected void processFile() throws IOException
+		{
+			if ( !overwrite && Files.exists(target, NOFOLLOW_LINKS))
+			{
+				return;
+			}
+			
+			Files.move(source, target, REPLACE_EXISTING);
+		}
+		
+		@Override
+		protected void preDirectory(BasicFileAttributes attributes) throws IOException
+		{
+			try
+			{
+				Files.createDirectory(target);
+			}
+			catch (FileAlreadyExistsException e)
+			{
+				if ( !Files.isDirectory(target, NOFOLLOW_LINKS))
+				{
+					throw e;
+				}
+			}
+		}
+		
+		@Override
+		protected void postDirectory(BasicFileAttributes attributes) throws IOException
+		{
+			Files.setLastModifiedTime(target, attributes.lastModifiedTime());
+			
+			// anything skipped or failed is left behind, so the directory stays.
+			try
+			{
+				Files.deleteIfExists(source);
+			}
+			catch (DirectoryNotEmptyException e)
+			{
+				Logger.info("OVERCAST: FOLDERHELPER: not empty, kept: " + source);
+			}
+		}
+	}
+	
+	/**
+	 * Deletes an entry in a tree.
+	 */
+	private static final class DeleteTask extends TreeTask
+	{
+		
+		private static final long	serialVersionUID	= 7305894121960324873L;
+		
+		private DeleteTask(Path source, Queue<Failure> failures)
+		{
+			super(source, failures);
+		}
+		
+		@Override
+		protected TreeTask fork(Path entry)
+		{
+			return new DeleteTask(entry, failures);
+		}
+		
+		@Override
+		protected void processFile() throws IOException
+		{
+			Files.deleteIfExists(source);
+		}
+		
+		@Override
+		protected void preDirectory(BasicFileAttributes attributes)
+		{}
+		
+		@Override
+		protected void postDirectory(BasicFileAttributes attributes) throws IOException
+		{
+			Files.deleteIfExists(source);
+		}
+	}
+	
+	// #endregion parallel.
+	// --------------------------------------------------------------------------------------
+	
+	// --------------------------------------------------------------------------------------
+	// #region size.
+	
+	/** Maximum number of directories in the size cache; the least recently used are dropped first. */
+	private static volatile int						sizeCacheLimit	= 100000;
+	
+	/** Sizes read before, mapped by directory, in the order of use. */
+	private static final Map<Path, DirectorySize>	sizeCache		= Collections.synchronizedMap(
+			new LinkedHashMap<Path, DirectorySize>(16, 0.75f, true)
+			{
+				
+				private static final long	serialVersionUID	= -3385296135429316264L;
+				
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Path, DirectorySize> eldest)
+				{
+					return size() > sizeCacheLimit;
+				}
+			});
+	
 	/**
-	 * Gets the size.<br />
-	 * <br/>
-	 * Credit: Aksel Willgert at StackOverFlow
+	 * Gets the size of the folder, including sub-folders.<br />
+	 * Directories are walked in parallel in the pool of the parallel operations (see {@link #setParallelism(int)}), and
+	 * the listing of each is cached with its modification time (up to {@link #getSizeCacheLimit()} directories), so only
+	 * directories that had entries added, removed or renamed since the last call are listed again. The sizes of the files
+	 * are always read again (a file modified in place doesn't change its directory's time), and each sub-directory is
+	 * checked on its own, so the result is never stale; the cache saves the listing only.
 	 *
 	 * @param startPath
 	 *            Folder to get size for.
@@ -379,31 +920,202 @@ public final class FolderHelper
 	 */
 	public static long getSize(String startPath) throws IOException
 	{
-		final AtomicLong size = new AtomicLong(0);
 		Path path = Paths.get(startPath);
+		BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		
+		if ( !attributes.isDirectory())
+		{
+			return attributes.size();
+		}
+		
+		return run(new SizeTask(path));
+	}
+	
+	/**
+	 * Clears the cached directory sizes.
+	 */
+	public static void clearSizeCache()
+	{
+		sizeCache.clear();
+	}
+	
+	/**
+	 * @return the maximum number of directories in the size cache
+	 */
+	public static int getSizeCacheLimit()
+	{
+		return sizeCacheLimit;
+	}
+	
+	/**
+	 * @param sizeCacheLimit
+	 *            the maximum number of directories in the size cache; the least recently used are dropped first
+	 */
+	public static void setSizeCacheLimit(int sizeCacheLimit)
+	{
+		if (sizeCacheLimit < 0)
+		{
+			throw new IllegalArgumentException("Limit must not be negative: " + sizeCacheLimit);
+		}
 		
-		Files.walkFileTree(path, new SimpleFileVisitor<Path>()
+		FolderHelper.sizeCacheLimit = sizeCacheLimit;
+		
+		// drop the extra entries now, instead of on the next put.
+		synchronized (sizeCache)
 		{
+			Iterator<Path> iterator = sizeCache.keySet().iterator();
 			
-			@Override
-			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
+			for (int extra = sizeCache.size() - sizeCacheLimit; extra > 0; extra--)
 			{
-				size.addAndGet(attrs.size());
-				return FileVisitResult.CONTINUE;
+				iterator.next();
+				iterator.remove();
 			}
+		}
+	}
+	
+	/**
+	 * What's read from a directory: its files and their total size, and its sub-directories.
+	 */
+	private static final class DirectorySize
+	{
+		
+		private final long			modified;
+		private final long			filesSize;
+		private final List<Path>	files;
+		private final List<Path>	folders;
+		
+		private DirectorySize(long modified, long filesSize, List<Path> files, List<Path> folders)
+		{
+			this.modified = modified;
+			this.filesSize = filesSize;
+			this.files = files;
+			this.folders = folders;
+		}
+	}
+	
+	/**
+	 * Calculates the size of a directory, forking a task for each sub-directory.
+	 */
+	private static final class SizeTask extends RecursiveTask<Long>
+	{
+		
+		private static final long	serialVersionUID	= 6283107419262735716L;
+		
+		private final Path			directory;
+		
+		private SizeTask(Path directory)
+		{
+			this.directory = directory;
+		}
+		
+		@Override
+		protected Long compute()
+		{
+			DirectorySize directorySize;
+			
+			try
+			{
+				directorySize = read(directory);
+			}
+			catch (IOException e)
+			{
+				// skip folders that can't be traversed
+				Logger.info("OVERCAST: FOLDERHELPER: skipped: " + directory + ", " + e);
+				return 0L;
+			}
+			
+			List<SizeTask> tasks = new ArrayList<SizeTask>(directorySize.folders.size());
+			
+			for (Path folder : directorySize.folders)
+			{
+				tasks.add(new SizeTask(folder));
+			}
+			
+			long size = directorySize.filesSize;
 			
-			@Override
-			public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException
+			for (SizeTask task : invokeAll(tasks))
 			{
-				// Skip folders that can't be traversed
-				System.out.println("skipped: " + file + "e=" + exc);
-				return FileVisitResult.CONTINUE;
+				size += task.join();
 			}
-		});
+			
+			return size;
+		}
 		
-		return size.get();
+		/**
+		 * Reads the directory's files sizes and sub-directories. If it has the same time as when it was cached, the
+		 * listing is taken from the cache, and only the sizes of the files are read again.
+		 */
+		private static DirectorySize read(Path directory) throws IOException
+		{
+			long modified = Files.getLastModifiedTime(directory, NOFOLLOW_LINKS).toMillis();
+			DirectorySize cached = sizeCache.get(directory);
+			
+			if ((cached != null) && (cached.modified == modified))
+			{
+				long filesSize = 0;
+				
+				for (Path file : cached.files)
+				{
+					try
+					{
+						filesSize += Files.readAttributes(file, BasicFileAttributes.class, NOFOLLOW_LINKS).size();
+					}
+					catch (IOException e)
+					{
+						Logger.info("OVERCAST: FOLDERHELPER: skipped: " + file + ", " + e);
+					}
+				}
+				
+				if (filesSize == cached.filesSize)
+				{
+					return cached;
+				}
+				
+				DirectorySize directorySize = new DirectorySize(modified, filesSize, cached.files, cached.folders);
+				sizeCache.put(directory, directorySize);
+				
+				return directorySize;
+			}
+			
+			long filesSize = 0;
+			List<Path> files = new ArrayList<Path>();
+			List<Path> folders = new ArrayList<Path>();
+			
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory))
+			{
+				for (Path entry : stream)
+				{
+					try
+					{
+						BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class, NOFOLLOW_LINKS);
+						
+						if (attributes.isDirectory())
+						{
+							folders.add(entry);
+						}
+						else
+						{
+							files.add(entry);
+							filesSize += attributes.size();
+						}
+					}
+					catch (IOException e)
+					{
+						Logger.info("OVERCAST: FOLDERHELPER: skipped: " + entry + ", " + e);
+					}
+				}
+			}
+			
+			DirectorySize directorySize = new DirectorySize(modified, filesSize, files, folders);
+			sizeCache.put(directory, directorySize);
+			
+			return directorySize;
+		}
 	}
 	
+	// #endregion size.
+	// --------------------------------------------------------------------------------------
+	
 	private FolderHelper()
 	{}
 }
@@ -6,7 +6,7 @@
  *
  *		Project/File: Overcast/com.yagasoft.overcast.base.container.local/LocalFile.java
  *
- *			Modified: 20-Jun-2014 (20:50:20)
+ *			Modified: 20-Oct-2026 (04:16:31)
  *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
  */
 
@@ -21,12 +21,15 @@ import java.nio.file.CopyOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
 
 import com.yagasoft.logger.Logger;
+import com.yagasoft.overcast.base.cache.MappingIndex;
 import com.yagasoft.overcast.base.container.Container;
 import com.yagasoft.overcast.base.container.File;
 import com.yagasoft.overcast.base.container.Folder;
+import com.yagasoft.overcast.base.container.operation.Operation;
 import com.yagasoft.overcast.base.container.remote.RemoteFile;
 import com.yagasoft.overcast.base.container.remote.RemoteFolder;
 import com.yagasoft.overcast.base.container.transfer.UploadJob;
@@ -65,7 +68,7 @@ public class LocalFile extends File<Path>
 		{
 			sourceObject = file;
 			updateFromSource();
-			csp = new LocalCSP();
+			csp = LocalCSP.getInstance();
 		}
 		catch (OperationException e)
 		{
@@ -73,6 +76,23 @@ public class LocalFile extends File<Path>
 		}		// updating the info locally costs nothing, so do it automatically.
 	}
 
+	/**
+	 * Instantiates a new local file using the attributes already read from the disk (e.g. while listing its folder), so
+	 * the disk is not accessed again.
+	 *
+	 * @param file
+	 *            Java library File object.
+	 * @param attributes
+	 *            the attributes of the file.
+	 */
+	public LocalFile(Path file, BasicFileAttributes attributes)
+	{
+		sourceObject = file;
+		updateInfo();
+		updateFromAttributes(attributes);
+		csp = LocalCSP.getInstance();
+	}
+
 	/**
 	 * Instantiates a new local file.
 	 *
@@ -122,22 +142,39 @@ public class LocalFile extends File<Path>
 	}
 
 	/**
+	 * Updates the name, path and ID from the path object; the disk is not accessed.
+	 *
 	 * @see com.yagasoft.overcast.base.container.Container#updateInfo()
 	 */
 	@Override
 	public synchronized void updateInfo()
 	{
-		try
+		if (sourceObject == null)
 		{
-			updateFromSource();
-		}
-		catch (OperationException e)
-		{
-			e.printStackTrace();
+			return;
 		}
+
+		name = sourceObject.getFileName().toString();
+		path = sourceObject.toAbsolutePath().toString();
+		generateId();
+	}
+
+	/**
+	 * Updates the size and date from the attributes passed.
+	 *
+	 * @param attributes
+	 *            the attributes of the file, read from the disk.
+	 */
+	protected void updateFromAttributes(BasicFileAttributes attributes)
+	{
+		date = attributes.lastModifiedTime().toMillis();
+		size = attributes.size();
+		sizeChanged();
 	}
 
 	/**
+	 * Updates all the info from the disk, reading the attributes of the file once.
+	 *
 	 * @see com.yagasoft.overcast.base.container.Container#updateFromSource()
 	 */
 	@Override
@@ -145,29 +182,17 @@ public class LocalFile extends File<Path>
 	{
 		name = sourceObject.getFileName().toString();
 		path = sourceObject.toAbsolutePath().toString();
-		type = URLConnection.guessContentTypeFromName(path);		// guess type of file (MIME)
-
-		if (sourceObject.getParent() != null)
-		{
-			parent = new LocalFolder(sourceObject.getParent());
-		}
+		type = null;		// guessed when needed.
 
 		try
 		{
-			date = Files.getLastModifiedTime(sourceObject).toMillis();
+			updateFromAttributes(Files.readAttributes(sourceObject, BasicFileAttributes.class));
 		}
 		catch (IOException e)
 		{
 			date = 0;
-		}
-
-		try
-		{
-			size = Files.size(sourceObject);
-		}
-		catch (IOException e)
-		{
 			size = 0;
+			sizeChanged();
 		}
 
 		generateId();
@@ -246,6 +271,32 @@ public class LocalFile extends File<Path>
 		}
 	}
 
+	/**
+	 * Forgets the mapping of this file when it's deleted, so its old remote file isn't taken as in sync with it.
+	 *
+	 * @see com.yagasoft.overcast.base.container.Container#postOperation(com.yagasoft.overcast.base.container.Folder,
+	 *      com.yagasoft.overcast.base.container.Container, com.yagasoft.overcast.base.container.operation.Operation)
+	 */
+	@Override
+	protected void postOperation(Folder<?> destination, Container<?> affectedContainer, Operation operation)
+			throws OperationException
+	{
+		if ((operation == Operation.DELETE) && (remoteMapping != null))
+		{
+			MappingIndex mappingIndex = remoteMapping.getCsp().getMappingIndex();
+
+			if (mappingIndex != null)
+			{
+				mappingIndex.forget(remoteMapping.getId());
+			}
+
+			remoteMapping.setLocalMapping(null);
+			remoteMapping = null;
+		}
+
+		super.postOperation(destination, affectedContainer, operation);
+	}
+
 	/**
 	 * Upload the container to the server.<br />
 	 * This should just call the one in {@link CSP}.
@@ -267,6 +318,47 @@ public class LocalFile extends File<Path>
 		return parent.getCsp().upload(this, parent, overwrite, listener);
 	}
 
+	/**
+	 * If the file wasn't added to a folder, a new folder is created for the one containing it on the disk (not listed).
+	 *
+	 * @see com.yagasoft.overcast.base.container.Container#locateParent()
+	 */
+	@Override
+	public Folder<?> locateParent()
+	{
+		Folder<?> parent = this.parent;
+
+		if ((parent == null) && (sourceObject != null) && (sourceObject.getParent() != null))
+		{
+			try
+			{
+				parent = new LocalFolder(sourceObject.getParent());
+			}
+			catch (OperationException e)
+			{
+				e.printStackTrace();
+			}
+		}
+
+		return parent;
+	}
+
+	/**
+	 * Gets the type (MIME), guessing it from the name on first use.
+	 *
+	 * @see com.yagasoft.overcast.base.container.File#getType()
+	 */
+	@Override
+	public String getType()
+	{
+		if ((type == null) && (path != null))
+		{
+			type = URLConnection.guessContentTypeFromName(path);		// guess type of file (MIME)
+		}
+
+		return type;
+	}
+
 	/**
 	 * @return the remoteMapping
 	 */
@@ -299,8 +391,11 @@ public class LocalFile extends File<Path>
 	@Override
 	public void setName(String value)
 	{
+		String oldName = name;
+
 		name = value;
 		path = Paths.get(path).getParent().resolve(name).toAbsolutePath().toString();
+		renamed(parent, id, oldName);
 	}
 
 	@Override
@@ -310,6 +405,24 @@ public class LocalFile extends File<Path>
 		setPathPrefix("");
 	}
 
+	/**
+	 * Local paths are absolute paths read from the file system, and they double as the ID, so they're kept as is.
+	 *
+	 * @see com.yagasoft.overcast.base.container.Container#getPath()
+	 */
+	@Override
+	public String getPath()
+	{
+		return path;
+	}
+
+	/**
+	 * @see com.yagasoft.overcast.base.container.Container#pathChanged()
+	 */
+	@Override
+	protected void pathChanged()
+	{}
+
 	@Override
 	public void setDate(long date)
 	{
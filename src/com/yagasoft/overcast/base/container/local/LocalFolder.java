@@ -19,16 +19,18 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.Executors;
+import java.util.Map;
 
 import com.yagasoft.logger.Logger;
+import com.yagasoft.overcast.base.container.ChildrenDiff;
 import com.yagasoft.overcast.base.container.Container;
+import com.yagasoft.overcast.base.container.File;
 import com.yagasoft.overcast.base.container.Folder;
-import com.yagasoft.overcast.base.container.local.FolderHelper.TreeCopier;
-import com.yagasoft.overcast.base.container.local.FolderHelper.TreeDeleter;
-import com.yagasoft.overcast.base.container.local.FolderHelper.TreeMover;
+import com.yagasoft.overcast.base.container.local.FolderHelper.Failure;
 import com.yagasoft.overcast.base.container.operation.IOperationListener;
 import com.yagasoft.overcast.base.container.operation.Operation;
 import com.yagasoft.overcast.base.container.operation.OperationState;
@@ -60,8 +62,7 @@ public class LocalFolder extends Folder<Path>
 	 */
 	public LocalFolder()
 	{
-		setExecutor(Executors.newFixedThreadPool(10));
-		csp = new LocalCSP();
+		csp = LocalCSP.getInstance();
 	}
 	
 	/**
@@ -78,6 +79,23 @@ public class LocalFolder extends Folder<Path>
 		updateFromSource(false, false);		// updating the info locally costs nothing, so do it automatically.
 	}
 	
+	/**
+	 * Instantiates a new local folder using the attributes already read from the disk (e.g. while listing its parent), so
+	 * the disk is not accessed again.
+	 *
+	 * @param file
+	 *            Java library File object.
+	 * @param attributes
+	 *            the attributes of the folder.
+	 */
+	public LocalFolder(Path file, BasicFileAttributes attributes)
+	{
+		this();
+		sourceObject = file;
+		updateInfo();
+		updateFromAttributes(attributes);
+	}
+	
 	/**
 	 * Instantiates a new local folder.
 	 *
@@ -120,7 +138,7 @@ public class LocalFolder extends Folder<Path>
 		
 		try
 		{
-			Files.createDirectories(Paths.get(parentPath, name));
+			sourceObject = Files.createDirectories(Paths.get(parentPath, name));
 			updateFromSource();
 			notifyOperationListeners(Operation.CREATE, OperationState.COMPLETED, 1.0f);
 			
@@ -173,77 +191,73 @@ public class LocalFolder extends Folder<Path>
 	 * @see com.yagasoft.overcast.base.container.Folder#buildTreeProcess(int, java.util.List)
 	 */
 	@Override
-	public synchronized void buildTreeProcess(final int numberOfLevels, List<Container<?>> childrenArray)
+	public void buildTreeProcess(final int numberOfLevels, List<Container<?>> childrenArray)
 			throws OperationException
 	{
-		ArrayList<Path> paths = new ArrayList<Path>();		// will be used to store children read from disk.
-		ArrayList<String> pathsString = new ArrayList<String>();	// will be used to filter children.
+		// children read from disk, mapped by ID (absolute path), with their attributes; a single read for each.
+		Map<String, Path> paths = new LinkedHashMap<String, Path>();
+		Map<String, BasicFileAttributes> attributes = new HashMap<String, BasicFileAttributes>();
 		
 		// read children of the folder from the disk.
 		try (DirectoryStream<Path> stream = Files.newDirectoryStream(sourceObject))
 		{
-			stream.forEach(file ->
+			for (Path file : stream)
 			{
-				paths.add(file);
-				pathsString.add(file.toAbsolutePath().toString());
-			});
+				String id = file.toAbsolutePath().toString();
+				
+				try
+				{
+					attributes.put(id, Files.readAttributes(file, BasicFileAttributes.class));
+					paths.put(id, file);
+				}
+				catch (IOException e)
+				{
+					Logger.info("OVERCAST: LOCALFOLDER: skipped: " + file + ", " + e);
+				}
+			}
 		}
 		catch (IOException | DirectoryIteratorException e)
 		{
 			throw new OperationException(e.getMessage());
 		}
 		
-		// filter!
-		removeObsolete(pathsString, true);
-		
-//		HashMap<String, Folder<?>> newFolders = new HashMap<String, Folder<?>>();
-		// HashMap<String, File<?>> newFiles = new HashMap<String, File<?>>();
+		// remove obsolete, and find out what's new.
+		ChildrenDiff diff = reconcile(paths.keySet());
 		
-		// add new files and folders to this folder's list, and build recursively if required.
-		paths.stream()
-				.forEach(path ->
+		// create new files and folders. Existing ones are updated from the attributes read; folders are kept with their
+		// sub-trees (they're built recursively later).
+		paths.forEach((id, path) ->
+		{
+			BasicFileAttributes fileAttributes = attributes.get(id);
+			
+			if ( !diff.getAdded().contains(id))
+			{
+				Folder<?> folder = folders.get(id);
+				File<?> file = files.get(id);
+				
+				if ((folder != null) && fileAttributes.isDirectory())
 				{
-					// if ( !folders.containsKey(path.toString()))
-					// {
-					// if ( !files.containsKey(path.toString()))
-					// {
-						try
-						{
-							if (Files.isDirectory(path))
-							{
-								childrenArray.add(new LocalFolder(path));
-							}
-							else
-							{
-								childrenArray.add(new LocalFile(path));
-							}
-						}
-						catch (Exception e)
-						{
-							e.printStackTrace();
-						}
-						// }
-						// else
-						// {
-						// newFiles.put(path.toString(), files.get(path.toString()));
-						// }
-						// }
-						// else
-						// {
-						// Folder<?> folder = folders.get(path.toString());
-						// folder.buildTree(numberOfLevels - 1);
-						// newFolders.put(folder.id, folder);
-						// }
-					});
-		
-		//
-		// folders = newFolders;
-		// files = newFiles;
-		
-//		for (Container<?> container : getChildrenArray())
-		// {
-		// System.out.println(container.getPath());
-		// }
+					((LocalFolder) folder).updateFromAttributes(fileAttributes);
+					return;
+				}
+				
+				if ((file != null) && !fileAttributes.isDirectory())
+				{
+					((LocalFile) file).updateFromAttributes(fileAttributes);
+					return;
+				}
+			}
+			
+			// new, or switched between a file and a folder.
+			if (fileAttributes.isDirectory())
+			{
+				childrenArray.add(new LocalFolder(path, fileAttributes));
+			}
+			else
+			{
+				childrenArray.add(new LocalFile(path, fileAttributes));
+			}
+		});
 	}
 	
 	/**
@@ -274,34 +288,60 @@ public class LocalFolder extends Folder<Path>
 	}
 	
 	/**
+	 * Updates the name, path and ID from the path object; the disk is not accessed.
+	 *
 	 * @see com.yagasoft.overcast.base.container.Folder#updateInfo()
 	 */
 	@Override
 	public synchronized void updateInfo()
 	{
-		try
+		if (sourceObject == null)
 		{
-			updateFromSource(false, false);
-		}
-		catch (OperationException e)
-		{
-			e.printStackTrace();
+			return;
 		}
+		
+		Path nameObject = sourceObject.getFileName();
+		name = (nameObject == null) ? "root" : nameObject.toString();
+		path = sourceObject.toAbsolutePath().toString();
+		generateId();
+	}
+	
+	/**
+	 * Updates the date from the attributes passed.
+	 *
+	 * @param attributes
+	 *            the attributes of the folder, read from the disk.
+	 */
+	protected void updateFromAttributes(BasicFileAttributes attributes)
+	{
+		date = attributes.lastModifiedTime().toMillis();
 	}
 	
 	/**
 	 * @see com.yagasoft.overcast.base.container.Folder#updateFromSource(boolean, boolean)
 	 */
 	@Override
-	public synchronized void updateFromSource(boolean folderContents, boolean recursively) throws OperationException
+	public void updateFromSource(boolean folderContents, boolean recursively) throws OperationException
 	{
 		// TODO re-write this method
 		
+		// building has its own lock, so don't hold this folder's monitor during it.
 		if (folderContents)
 		{
 			buildTree(false);
 		}
 		
+		updateInfoFromSource();
+	}
+	
+	/**
+	 * Updates the fields of this folder from the disk.
+	 *
+	 * @throws OperationException
+	 *             the operation exception
+	 */
+	protected synchronized void updateInfoFromSource() throws OperationException
+	{
 		Path nameObject = sourceObject.getFileName();
 		
 		if (nameObject == null)
@@ -314,14 +354,7 @@ public class LocalFolder extends Folder<Path>
 		}
 		
 		path = sourceObject.toAbsolutePath().toString();
-		localFreeSpace = calculateLocalFreeSpace();
-		
-		Path parentObject = sourceObject.getParent();
-		
-		if (parentObject != null)
-		{
-			parent = new LocalFolder(parentObject);
-		}
+		localFreeSpace = 0;		// calculated when needed.
 		
 		try
 		{
@@ -351,17 +384,11 @@ public class LocalFolder extends Folder<Path>
 	protected Container<?> copyProcess(Folder<?> destination)
 			throws OperationException
 	{
-		try
-		{
-			// call Oracle's copier.
-			TreeCopier treeCopier = new TreeCopier(sourceObject, (Path) destination.getSourceObject(), true, true);
-			Files.walkFileTree(sourceObject, treeCopier);
-			return new LocalFolder(((Path) destination.getSourceObject()).resolve(sourceObject.getFileName()));
-		}
-		catch (IOException e)
-		{
-			throw new OperationException(e.getMessage());
-		}
+		Path target = ((Path) destination.getSourceObject()).resolve(sourceObject.getFileName());
+		
+		checkFailures("copy", FolderHelper.copyTree(sourceObject, target, false, true));
+		
+		return new LocalFolder(target);
 	}
 	
 	/**
@@ -371,17 +398,11 @@ public class LocalFolder extends Folder<Path>
 	protected Path moveProcess(Folder<?> destination)
 			throws OperationException
 	{
-		try
-		{
-			// call my modification to Oracle's copier.
-			TreeMover treeMover = new TreeMover(sourceObject, (Path) destination.getSourceObject(), true);
-			Files.walkFileTree(sourceObject, treeMover);
-			return ((Path) destination.getSourceObject()).resolve(sourceObject.getFileName());
-		}
-		catch (IOException e)
-		{
-			throw new OperationException(e.getMessage());
-		}
+		Path target = ((Path) destination.getSourceObject()).resolve(sourceObject.getFileName());
+		
+		checkFailures("move", FolderHelper.moveTree(sourceObject, target, false));
+		
+		return target;
 	}
 	
 	/**
@@ -406,15 +427,54 @@ public class LocalFolder extends Folder<Path>
 	@Override
 	public void deleteProcess() throws OperationException
 	{
-		try
+		checkFailures("delete", FolderHelper.deleteTree(sourceObject));		// the content is deleted first recursively (must!).
+	}
+	
+	/**
+	 * Throws an exception describing the failures of a tree operation, if any.
+	 *
+	 * @param operation
+	 *            the operation name
+	 * @param failures
+	 *            the failures returned by the operation
+	 * @throws OperationException
+	 *             some entries failed
+	 */
+	protected void checkFailures(String operation, List<Failure> failures) throws OperationException
+	{
+		if (failures.isEmpty())
 		{
-			TreeDeleter treeDeleter = new TreeDeleter();
-			Files.walkFileTree(sourceObject, treeDeleter);		// delete the content first recursively (must!).
+			return;
 		}
-		catch (IOException e)
+		
+		Logger.error("OVERCAST: LOCALFOLDER: failed to " + operation + " " + failures.size() + " entries in: " + path);
+		
+		throw new OperationException("Failed to " + operation + " " + failures.size() + " entries! " + failures.get(0));
+	}
+	
+	/**
+	 * If the folder wasn't added to another, a new folder is created for the one containing it on the disk (not listed).
+	 *
+	 * @see com.yagasoft.overcast.base.container.Container#locateParent()
+	 */
+	@Override
+	public Folder<?> locateParent()
+	{
+		Folder<?> parent = this.parent;
+		
+		if ((parent == null) && (sourceObject != null) && (sourceObject.getParent() != null))
 		{
-			throw new OperationException(e.getMessage());
+			try
+			{
+				parent = new LocalFolder(sourceObject.getParent());
+			}
+			catch (OperationException e)
+			{
+				e.printStackTrace();
+			}
 		}
+		
+		return parent;
 	}
 	
 	/**
@@ -530,8 +590,11 @@ public class LocalFolder extends Folder<Path>
 	@Override
 	public void setName(String value)
 	{
+		String oldName = name;
+		
 		name = value;
 		path = Paths.get(path).getParent().resolve(name).toAbsolutePath().toString();
+		renamed(parent, id, oldName);
 	}
 	
 	@Override
@@ -540,4 +603,22 @@ public class LocalFolder extends Folder<Path>
 		path = value;
 		setPathPrefix("");
 	}
+	
+	/**
+	 * Local paths are absolute paths read from the file system, and they double as the ID, so they're kept as is.
+	 *
+	 * @see com.yagasoft.overcast.base.container.Container#getPath()
+	 */
+	@Override
+	public String getPath()
+	{
+		return path;
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Container#pathChanged()
+	 */
+	@Override
+	protected void pathChanged()
+	{}
 }
@@ -0,0 +1,568 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.container.local/LocalTreeWatcher.java
+ *
+ *			Modified: 20-Oct-2026 (07:24:19)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.container.local;
+
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.yagasoft.logger.Logger;
+import com.yagasoft.overcast.base.container.Container;
+import com.yagasoft.overcast.base.container.Folder;
+import com.yagasoft.overcast.base.container.operation.Operation;
+import com.yagasoft.overcast.base.container.operation.OperationState;
+import com.yagasoft.overcast.exception.OperationException;
+
+
+/**
+ * Keeps a built {@link LocalFolder} tree in sync with the disk, using the file system's {@link WatchService} instead of
+ * scanning the tree again.<br />
+ * Each folder in the tree is registered; created, deleted and modified entries are applied to the folder in memory using
+ * {@link Folder#add(Container)} and {@link Folder#remove(Container)}, so listeners get the usual {@link Operation#ADD},
+ * {@link Operation#REMOVE} and {@link Operation#UPDATE} events. If the system drops events (overflow), the folder is
+ * re-built from the disk.
+ */
+public class LocalTreeWatcher implements Closeable
+{
+	
+	/** Root of the tree watched. */
+	protected final LocalFolder				root;
+	
+	/** Watch service. */
+	protected final WatchService			watchService;
+	
+	/** Folders watched, mapped by their watch key. */
+	protected final Map<WatchKey, LocalFolder>	folders	= new ConcurrentHashMap<WatchKey, LocalFolder>();
+	
+	/** Watch keys, mapped by the ID (absolute path) of the folder. */
+	protected final Map<String, WatchKey>	keys	= new ConcurrentHashMap<String, WatchKey>();
+	
+	/** Thread processing the events. */
+	protected Thread						thread;
+	
+	/**
+	 * Instantiates a new watcher for the tree passed. Call {@link #start()} to start watching.
+	 *
+	 * @param root
+	 *            the root of the tree, which should be already built.
+	 * @throws OperationException
+	 *             the file system can't be watched
+	 */
+	public LocalTreeWatcher(LocalFolder root) throws OperationException
+	{
+		this.root = root;
+		
+		try
+		{
+			watchService = root.getSourceObject().getFileSystem().newWatchService();
+		}
+		catch (IOException | UnsupportedOperationException e)
+		{
+			throw new OperationException("Can't watch the file system! " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Registers the tree, and starts processing the events in the background.
+	 *
+	 * @throws OperationException
+	 *             the root couldn't be registered
+	 */
+	public synchronized void start() throws OperationException
+	{
+		if (thread != null)
+		{
+			return;
+		}
+		
+		Logger.info("OVERCAST: LOCALWATCHER: watching: " + root.getPath());
+		
+		register(root);
+		
+		if ( !keys.containsKey(root.getId()))
+		{
+			throw new OperationException("Can't watch folder: " + root.getPath());
+		}
+		
+		thread = new Thread(this::processEvents, "Overcast watcher: " + root.getName());
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Stops watching, and releases the watch service.
+	 */
+	@Override
+	public synchronized void close()
+	{
+		Logger.info("OVERCAST: LOCALWATCHER: stopped watching: " + root.getPath());
+		
+		try
+		{
+			watchService.close();
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+		
+		folders.clear();
+		keys.clear();
+		thread = null;
+	}
+	
+	// --------------------------------------------------------------------------------------
+	// #region Registration.
+	
+	/**
+	 * Registers the folder passed and the sub-folders already in its tree.
+	 *
+	 * @param folder
+	 *            the folder
+	 */
+	protected void register(LocalFolder folder)
+	{
+		if (registerFolder(folder))
+		{
+			registerChildren(folder);
+		}
+	}
+	
+	/**
+	 * Registers the sub-folders already in the tree of the folder passed.
+	 *
+	 * @param folder
+	 *            the folder
+	 */
+	protected void registerChildren(LocalFolder folder)
+	{
+		for (Folder<?> child : folder.getFoldersList())
+		{
+			register((LocalFolder) child);
+		}
+	}
+	
+	/**
+	 * Registers the folder passed only. If it's registered already, the file system returns the same key, which is then
+	 * mapped to this folder object.
+	 *
+	 * @param folder
+	 *            the folder
+	 * @return true, if registered
+	 */
+	protected boolean registerFolder(LocalFolder folder)
+	{
+		try
+		{
+			WatchKey key = folder.getSourceObject().register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+			folders.put(key, folder);
+			keys.put(folder.getId(), key);
+			
+			return true;
+		}
+		catch (IOException | ClosedWatchServiceException e)
+		{
+			Logger.info("OVERCAST: LOCALWATCHER: can't watch: " + folder.getPath() + ", " + e);
+			return false;
+		}
+	}
+	
+	/**
+	 * Stops watching the folder passed and its sub-folders.
+	 *
+	 * @param folder
+	 *            the folder
+	 */
+	protected void unregister(LocalFolder folder)
+	{
+		WatchKey key = keys.remove(folder.getId());
+		
+		if (key != null)
+		{
+			key.cancel();
+			folders.remove(key);
+		}
+		
+		for (Folder<?> child : folder.getFoldersList())
+		{
+			unregister((LocalFolder) child);
+		}
+	}
+	
+	/**
+	 * Collects the watch keys of the folder passed and its sub-folders.
+	 *
+	 * @param folder
+	 *            the folder
+	 * @param collected
+	 *            the keys, mapped by the ID of the folder
+	 */
+	protected void collectKeys(LocalFolder folder, Map<String, WatchKey> collected)
+	{
+		WatchKey key = keys.get(folder.getId());
+		
+		if (key != null)
+		{
+			collected.put(folder.getId(), key);
+		}
+		
+		for (Folder<?> child : folder.getFoldersList())
+		{
+			collectKeys((LocalFolder) child, collected);
+		}
+	}
+	
+	// #endregion Registration.
+	// --------------------------------------------------------------------------------------
+	
+	// --------------------------------------------------------------------------------------
+	// #region Events.
+	
+	/**
+	 * Waits for events, and applies them to the tree, until the watcher is closed.
+	 */
+	protected void processEvents()
+	{
+		while (true)
+		{
+			WatchKey key;
+			
+			try
+			{
+				key = watchService.take();
+			}
+			catch (InterruptedException | ClosedWatchServiceException e)
+			{
+				return;
+			}
+			
+			LocalFolder folder = folders.get(key);
+			
+			// cancelled when its folder was removed, but still had events queued.
+			if (folder == null)
+			{
+				key.pollEvents();
+				key.cancel();
+				continue;
+			}
+			
+			boolean overflow = false;
+			
+			for (WatchEvent<?> event : key.pollEvents())
+			{
+				if (event.kind() == OVERFLOW)
+				{
+					overflow = true;
+					continue;
+				}
+				
+				Path path = folder.getSourceObject().resolve((Path) event.context());
+				
+				try
+				{
+					if (event.kind() == ENTRY_CREATE)
+					{
+						created(folder, path);
+					}
+					else if (event.kind() == ENTRY_DELETE)
+					{
+						deleted(folder, path);
+					}
+					else if (event.kind() == ENTRY_MODIFY)
+					{
+						modified(folder, path);
+					}
+				}
+				catch (RuntimeException e)
+				{
+					Logger.error("OVERCAST: LOCALWATCHER: failed to apply change: " + path);
+					Logger.except(e);
+					e.printStackTrace();
+				}
+			}
+			
+			// events were lost, so read the folder again.
+			if (overflow)
+			{
+				rescan(folder);
+			}
+			
+			// the folder itself is no longer accessible (deleted); its parent gets the event.
+			if ( !key.reset())
+			{
+				folders.remove(key);
+				keys.remove(folder.getId(), key);
+			}
+		}
+	}
+	
+	/**
+	 * Adds the file/folder created on the disk to the folder passed. A new folder is watched, and then built from the
+	 * disk, as it might have got some content before it was watched.
+	 *
+	 * @param folder
+	 *            the parent folder in memory
+	 * @param path
+	 *            the path of the entry created
+	 */
+	protected void created(LocalFolder folder, Path path)
+	{
+		String id = path.toAbsolutePath().toString();
+		BasicFileAttributes attributes = readAttributes(path);
+		
+		// deleted already; the delete event will follow.
+		if (attributes == null)
+		{
+			return;
+		}
+		
+		Container<?> existing = folder.getChild(id);
+		
+		if ((existing != null) && (existing.isFolder() == attributes.isDirectory()))
+		{
+			update(existing, attributes);
+			return;
+		}
+		
+		if (existing instanceof LocalFolder)
+		{
+			unregister((LocalFolder) existing);
+		}
+		
+		Logger.info("OVERCAST: LOCALWATCHER: created: " + id);
+		
+		if (attributes.isDirectory())
+		{
+			LocalFolder child = new LocalFolder(path, attributes);
+			folder.add(child);
+			
+			// watch it before reading it, so nothing created meanwhile is missed.
+			if ( !registerFolder(child))
+			{
+				return;
+			}
+			
+			try
+			{
+				child.buildTree(true);
+				registerChildren(child);
+			}
+			catch (OperationException e)
+			{
+				Logger.except(e);
+				e.printStackTrace();
+			}
+		}
+		else
+		{
+			folder.add(new LocalFile(path, attributes));
+		}
+	}
+	
+	/**
+	 * Removes the file/folder deleted from the disk from the folder passed.
+	 *
+	 * @param folder
+	 *            the parent folder in memory
+	 * @param path
+	 *            the path of the entry deleted
+	 */
+	protected void deleted(LocalFolder folder, Path path)
+	{
+		Container<?> existing = folder.getChild(path.toAbsolutePath().toString());
+		
+		// removed already, or re-created since (the create event follows).
+		if ((existing == null) || Files.exists(path))
+		{
+			return;
+		}
+		
+		Logger.info("OVERCAST: LOCALWATCHER: deleted: " + existing.getPath());
+		
+		if (existing instanceof LocalFolder)
+		{
+			unregister((LocalFolder) existing);
+		}
+		
+		folder.remove(existing);
+	}
+	
+	/**
+	 * Updates the file/folder modified on the disk.
+	 *
+	 * @param folder
+	 *            the parent folder in memory
+	 * @param path
+	 *            the path of the entry modified
+	 */
+	protected void modified(LocalFolder folder, Path path)
+	{
+		Container<?> existing = folder.getChild(path.toAbsolutePath().toString());
+		BasicFileAttributes attributes = readAttributes(path);
+		
+		if (attributes == null)
+		{
+			return;
+		}
+		
+		// missed its creation, or it was replaced by an entry of the other type.
+		if ((existing == null) || (existing.isFolder() != attributes.isDirectory()))
+		{
+			created(folder, path);
+			return;
+		}
+		
+		update(existing, attributes);
+	}
+	
+	/**
+	 * Updates the date (and size) of the container passed, and notifies its listeners if they changed.
+	 *
+	 * @param container
+	 *            the container
+	 * @param attributes
+	 *            the attributes read from the disk
+	 */
+	protected void update(Container<?> container, BasicFileAttributes attributes)
+	{
+		long date = container.getDate();
+		long size = container.getSize();
+		
+		if (container instanceof LocalFolder)
+		{
+			((LocalFolder) container).updateFromAttributes(attributes);
+		}
+		else
+		{
+			((LocalFile) container).updateFromAttributes(attributes);
+		}
+		
+		if ((date != container.getDate()) || (size != container.getSize()))
+		{
+			Logger.info("OVERCAST: LOCALWATCHER: modified: " + container.getPath());
+			container.notifyOperationListeners(Operation.UPDATE, OperationState.COMPLETED, 1.0f, container);
+		}
+	}
+	
+	/**
+	 * Re-builds the tree of the folder passed from the disk, and watches any new sub-folders.<br />
+	 * The folders are kept registered while re-building, and the new tree is registered before the keys of the folders
+	 * that are gone are cancelled, so no events are lost in between.
+	 *
+	 * @param folder
+	 *            the folder
+	 */
+	protected void rescan(LocalFolder folder)
+	{
+		Logger.info("OVERCAST: LOCALWATCHER: events lost, re-reading: " + folder.getPath());
+		
+		Map<String, WatchKey> oldKeys = new HashMap<String, WatchKey>();
+		collectKeys(folder, oldKeys);
+		
+		try
+		{
+			folder.buildTree(true);
+		}
+		catch (OperationException e)
+		{
+			Logger.except(e);
+			e.printStackTrace();
+		}
+		
+		register(folder);
+		
+		Map<String, WatchKey> newKeys = new HashMap<String, WatchKey>();
+		collectKeys(folder, newKeys);
+		
+		// a folder still there keeps its key, as the file system returns the same one on registering again.
+		for (Map.Entry<String, WatchKey> entry : oldKeys.entrySet())
+		{
+			WatchKey key = entry.getValue();
+			
+			if (newKeys.get(entry.getKey()) != key)
+			{
+				key.cancel();
+				folders.remove(key);
+				keys.remove(entry.getKey(), key);
+			}
+		}
+	}
+	
+	/**
+	 * Reads the attributes of the entry passed.
+	 *
+	 * @param path
+	 *            the path
+	 * @return the attributes, or null if the entry doesn't exist anymore
+	 */
+	protected BasicFileAttributes readAttributes(Path path)
+	{
+		try
+		{
+			return Files.readAttributes(path, BasicFileAttributes.class);
+		}
+		catch (NoSuchFileException e)
+		{
+			return null;
+		}
+		catch (IOException e)
+		{
+			Logger.info("OVERCAST: LOCALWATCHER: skipped: " + path + ", " + e);
+			return null;
+		}
+	}
+	
+	// #endregion Events.
+	// --------------------------------------------------------------------------------------
+	
+	// //////////////////////////////////////////////////////////////////////////////////////
+	// #region Getters and setters.
+	// ======================================================================================
+	
+	/**
+	 * @return the root
+	 */
+	public LocalFolder getRoot()
+	{
+		return root;
+	}
+	
+	/**
+	 * @return true, if watching
+	 */
+	public synchronized boolean isWatching()
+	{
+		return thread != null;
+	}
+	
+	// ======================================================================================
+	// #endregion Getters and setters.
+	// //////////////////////////////////////////////////////////////////////////////////////
+	
+}
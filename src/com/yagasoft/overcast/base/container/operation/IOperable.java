@@ -14,6 +14,7 @@ package com.yagasoft.overcast.base.container.operation;
 
 
 import java.util.Arrays;
+import java.util.List;
 
 import com.yagasoft.overcast.base.container.Container;
 
@@ -167,6 +168,19 @@ public interface IOperable
 	 */
 	void notifyOperationListeners(Operation operation, OperationState state, float progress, Container<?> object);
 
+	/**
+	 * Notify operation listeners of an operation on a batch of objects. By default, an event is sent per object.
+	 *
+	 * @param operation
+	 *            Operation.
+	 * @param objects
+	 *            Objects.
+	 */
+	default void notifyBatchOperationListeners(Operation operation, List<Container<?>> objects)
+	{
+		objects.forEach(object -> notifyOperationListeners(operation, object));
+	}
+
 	/**
 	 * Clear all listeners to the operations.
 	 *
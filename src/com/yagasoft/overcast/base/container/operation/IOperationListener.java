@@ -35,4 +35,15 @@ public interface IOperationListener
 	 */
 	public void operationChange(OperationEvent event);
 	
+	/**
+	 * Checks if this listener handles batch events (see {@link OperationEvent#getObjects()}), like a whole listing
+	 * added at once. Otherwise, it gets an event per object in the batch.
+	 *
+	 * @return true, if it accepts batch events; false by default
+	 */
+	default boolean isAcceptingBatches()
+	{
+		return false;
+	}
+	
 }
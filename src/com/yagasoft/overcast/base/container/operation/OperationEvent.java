@@ -13,6 +13,9 @@
 package com.yagasoft.overcast.base.container.operation;
 
 
+import java.util.Collections;
+import java.util.List;
+
 import com.yagasoft.overcast.base.container.Container;
 import com.yagasoft.overcast.base.container.Event;
 
@@ -35,6 +38,9 @@ public class OperationEvent extends Event
 	/** The object of the change. */
 	protected Container<?>		object;
 	
+	/** The objects of the change, if it's a batch (e.g. a whole listing added at once); null otherwise. */
+	protected List<Container<?>>	objects;
+	
 	public OperationEvent(Container<?> container)
 	{
 		this(container, Operation.UPDATE, null);
@@ -169,6 +175,40 @@ public class OperationEvent extends Event
 		this.object = object;
 	}
 	
+	/**
+	 * Gets the objects of the change; for a single object event, a list containing only that object.
+	 *
+	 * @return the objects
+	 */
+	public List<Container<?>> getObjects()
+	{
+		if (objects != null)
+		{
+			return objects;
+		}
+		
+		return (object == null) ? Collections.<Container<?>> emptyList() : Collections.<Container<?>> singletonList(object);
+	}
+	
+	/**
+	 * Checks if the event is on a batch of objects.
+	 *
+	 * @return true, if a batch
+	 */
+	public boolean isBatch()
+	{
+		return objects != null;
+	}
+	
+	/**
+	 * @param objects
+	 *            the objects to set
+	 */
+	public void setObjects(List<Container<?>> objects)
+	{
+		this.objects = objects;
+	}
+	
 	// ======================================================================================
 	// #endregion Getters and setters.
 	// //////////////////////////////////////////////////////////////////////////////////////
@@ -6,13 +6,21 @@
  *
  *		Project/File: Overcast/com.yagasoft.overcast.base.container.remote/RemoteFactory.java
  *
- *			Modified: 06-May-2014 (04:10:43)
- *			   Using: Eclipse J-EE / JDK 7 / Windows 8.1 x64
+ *			Modified: 20-Oct-2026 (06:57:03)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
  */
 
 package com.yagasoft.overcast.base.container.remote;
 
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
 import com.yagasoft.logger.Logger;
 import com.yagasoft.overcast.base.container.Container;
 import com.yagasoft.overcast.base.csp.CSP;
@@ -47,19 +55,28 @@ public class RemoteFactory<FolderSourceType, FolderType extends RemoteFolder<Fol
 	protected String			pathPrefix;
 	
 	/**
-	 * Folder type as passed during creation of this factory.<br />
-	 * Will be used to create folders -- set their type.
+	 * Folder type as passed during creation of this factory; null if created with a supplier.
 	 */
-	protected Class<FolderType>	folderType;
+	protected Class<FolderType>		folderType;
 	
 	/**
-	 * File type as passed during creation of this factory.<br />
-	 * Will be used to create files -- set their type.
+	 * File type as passed during creation of this factory; null if created with a supplier.
 	 */
-	protected Class<FileType>	fileType;
+	protected Class<FileType>		fileType;
 	
 	/**
-	 * Instantiates a new remote factory.
+	 * Will be used to create folders -- no reflection per object.
+	 */
+	protected Supplier<FolderType>	folderSupplier;
+	
+	/**
+	 * Will be used to create files -- no reflection per object.
+	 */
+	protected Supplier<FileType>	fileSupplier;
+	
+	/**
+	 * Instantiates a new remote factory.<br />
+	 * The types must have a public constructor with no arguments, which is looked up once here.
 	 *
 	 * @param csp
 	 *            CspType using this factory.
@@ -72,38 +89,92 @@ public class RemoteFactory<FolderSourceType, FolderType extends RemoteFolder<Fol
 	 */
 	public RemoteFactory(CspType csp, Class<FolderType> folderType, Class<FileType> fileType, String pathPrefix)
 	{
-		this.csp = csp;
+		this(csp, supplier(folderType), supplier(fileType), pathPrefix);
 		this.folderType = folderType;
 		this.fileType = fileType;
-		this.pathPrefix = pathPrefix;
 	}
 	
-	// --------------------------------------------------------------------------------------
-	// #region Create basic.
+	/**
+	 * Instantiates a new remote factory using constructor references (e.g. 'MyFolder::new'), which skips the method handle
+	 * call on each object; see {@link RemoteFactoryBenchmark} to compare the two on a JVM.
+	 *
+	 * @param csp
+	 *            CspType using this factory.
+	 * @param folderSupplier
+	 *            Creates folders of the type from this API.
+	 * @param fileSupplier
+	 *            Creates files of the type from this API.
+	 * @param pathPrefix
+	 *            Path prefix.
+	 */
+	public RemoteFactory(CspType csp, Supplier<FolderType> folderSupplier, Supplier<FileType> fileSupplier, String pathPrefix)
+	{
+		this.csp = csp;
+		this.folderSupplier = folderSupplier;
+		this.fileSupplier = fileSupplier;
+		this.pathPrefix = pathPrefix;
+	}
 	
 	/**
-	 * Creates a new remote folder object.
+	 * Creates a supplier calling the public constructor with no arguments of the type through a method handle, which is
+	 * looked up once, instead of reflecting on each call.
 	 *
-	 * @return the folder object
-	 * @throws CreationException
+	 * @param type
+	 *            the type
+	 * @return the supplier; if there's no such constructor, it fails on each call
 	 */
-	public FolderType createFolder() throws CreationException
+	protected static <T> Supplier<T> supplier(Class<T> type)
 	{
+		MethodHandle constructor;
+		
 		try
 		{
-			FolderType folder = folderType.newInstance();	// new RemoteFolder()
-			postObjectCreation(folder);		// init object.
-			
-			return folder;
+			constructor = MethodHandles.publicLookup().findConstructor(type, MethodType.methodType(void.class))
+					.asType(MethodType.methodType(Object.class));
 		}
-		catch (InstantiationException | IllegalAccessException e)
+		catch (NoSuchMethodException | IllegalAccessException e)
 		{
-			Logger.error("OVERCAST: REMOTE FACTORY: failed to create folder object");
+			Logger.error("OVERCAST: REMOTE FACTORY: no public constructor without arguments: " + type.getName());
 			Logger.except(e);
-			e.printStackTrace();
 			
-			throw new CreationException("Couldn't create object in factory.");
+			return () ->
+			{
+				throw new IllegalStateException("No public constructor without arguments: " + type.getName());
+			};
 		}
+		
+		return () ->
+		{
+			try
+			{
+				return type.cast((Object) constructor.invokeExact());
+			}
+			catch (RuntimeException | Error e)
+			{
+				throw e;
+			}
+			catch (Throwable e)
+			{
+				throw new IllegalStateException(e);
+			}
+		};
+	}
+	
+	// --------------------------------------------------------------------------------------
+	// #region Create basic.
+	
+	/**
+	 * Creates a new remote folder object.
+	 *
+	 * @return the folder object
+	 * @throws CreationException
+	 */
+	public FolderType createFolder() throws CreationException
+	{
+		FolderType folder = newInstance(folderSupplier, "folder");	// new RemoteFolder()
+		postObjectCreation(folder);		// init object.
+		
+		return folder;
 	}
 	
 	/**
@@ -113,17 +184,32 @@ public class RemoteFactory<FolderSourceType, FolderType extends RemoteFolder<Fol
 	 * @throws CreationException
 	 */
 	public FileType createFile() throws CreationException
+	{
+		FileType file = newInstance(fileSupplier, "file");		// new RemoteFile()
+		postObjectCreation(file);		// init object.
+		
+		return file;
+	}
+	
+	/**
+	 * Creates a new object using the supplier passed.
+	 *
+	 * @param supplier
+	 *            the supplier
+	 * @param kind
+	 *            'file' or 'folder', for the log
+	 * @return the object
+	 * @throws CreationException
+	 */
+	protected <T> T newInstance(Supplier<T> supplier, String kind) throws CreationException
 	{
 		try
 		{
-			FileType file = fileType.newInstance();		// new RemoteFile()
-			postObjectCreation(file);		// init object.
-			
-			return file;
+			return supplier.get();
 		}
-		catch (InstantiationException | IllegalAccessException e)
+		catch (RuntimeException e)
 		{
-			Logger.error("OVERCAST: REMOTE FACTORY: failed to create file object");
+			Logger.error("OVERCAST: REMOTE FACTORY: failed to create " + kind + " object");
 			Logger.except(e);
 			e.printStackTrace();
 			
@@ -132,7 +218,9 @@ public class RemoteFactory<FolderSourceType, FolderType extends RemoteFolder<Fol
 	}
 	
 	/**
-	 * Do stuff after object creation.
+	 * Do stuff after object creation.<br />
+	 * The CSP and path prefix are set as references to the ones in this factory, shared by all the objects it creates;
+	 * nothing is copied per object.
 	 *
 	 * @param container
 	 *            the container created
@@ -188,6 +276,62 @@ public class RemoteFactory<FolderSourceType, FolderType extends RemoteFolder<Fol
 		return file;
 	}
 	
+	/**
+	 * Creates new remote folder objects in bulk, fetching their info online (if requested) through a single batched call
+	 * to the CSP (see {@link CSP#updateContainersFromSource(Collection)}), instead of one round trip per folder.
+	 *
+	 * @param sourceObjects
+	 *            the folder objects given by the original CspType API.
+	 * @param fetchInfoOnline
+	 *            the fetch info online instead of from memory.
+	 * @return the folder objects, in the same order
+	 * @throws CreationException
+	 */
+	public List<FolderType> createFolders(Collection<? extends FolderSourceType> sourceObjects, boolean fetchInfoOnline)
+			throws CreationException
+	{
+		List<FolderType> folders = new ArrayList<FolderType>(sourceObjects.size());
+		
+		for (FolderSourceType sourceObject : sourceObjects)
+		{
+			FolderType folder = createFolder();
+			folder.setSourceObject(sourceObject);
+			folders.add(folder);
+		}
+		
+		updateContainers(folders, fetchInfoOnline);
+		
+		return folders;
+	}
+	
+	/**
+	 * Creates new remote file objects in bulk, fetching their info online (if requested) through a single batched call to
+	 * the CSP (see {@link CSP#updateContainersFromSource(Collection)}), instead of one round trip per file.
+	 *
+	 * @param sourceObjects
+	 *            the file objects given by the original CspType API.
+	 * @param fetchInfoOnline
+	 *            the fetch info online instead of from memory.
+	 * @return the file objects, in the same order
+	 * @throws CreationException
+	 */
+	public List<FileType> createFiles(Collection<? extends FileSourceType> sourceObjects, boolean fetchInfoOnline)
+			throws CreationException
+	{
+		List<FileType> files = new ArrayList<FileType>(sourceObjects.size());
+		
+		for (FileSourceType sourceObject : sourceObjects)
+		{
+			FileType file = createFile();
+			file.setSourceObject(sourceObject);
+			files.add(file);
+		}
+		
+		updateContainers(files, fetchInfoOnline);
+		
+		return files;
+	}
+	
 	/**
 	 * Update container's meta info.
 	 *
@@ -211,6 +355,42 @@ public class RemoteFactory<FolderSourceType, FolderType extends RemoteFolder<Fol
 		}
 	}
 	
+	/**
+	 * Update the meta info of the containers in one batch, and then any left out by the CSP one by one.
+	 *
+	 * @param containers
+	 *            the containers
+	 * @param online
+	 *            update meta from source (online)
+	 */
+	@SuppressWarnings("unchecked")
+	protected void updateContainers(List<? extends Container<?>> containers, boolean online)
+	{
+		if ( !online || containers.isEmpty())
+		{
+			return;
+		}
+		
+		Collection<? extends Container<?>> remaining;
+		
+		try
+		{
+			remaining = csp.updateContainersFromSource(containers);
+		}
+		catch (OperationException e)
+		{
+			Logger.error("OVERCAST: REMOTE FACTORY: batched update failed, updating one by one");
+			Logger.except(e);
+			
+			remaining = containers;
+		}
+		
+		for (Container<?> container : remaining)
+		{
+			updateContainer(container, true);
+		}
+	}
+	
 	// #endregion Create out of sent sourceObject.
 	// --------------------------------------------------------------------------------------
 	
@@ -258,16 +438,14 @@ public class RemoteFactory<FolderSourceType, FolderType extends RemoteFolder<Fol
 	{
 		try
 		{
-			FolderType container = folderType.newInstance();	// new folder()
+			FolderType container = newInstance(folderSupplier, "folder");	// new folder()
 			
 			// post creation stuff, and make sure it doesn't already exist
 			return (FolderType) postObjectCreationByPath(container, path);
 		}
-		catch (InstantiationException | IllegalAccessException e)
+		catch (CreationException e)
 		{
 			Logger.error("OVERCAST: REMOTE FACTORY: failed to create folder object: " + path);
-			Logger.except(e);
-			e.printStackTrace();
 		}
 		
 		return null;
@@ -286,16 +464,14 @@ public class RemoteFactory<FolderSourceType, FolderType extends RemoteFolder<Fol
 	{
 		try
 		{
-			FileType container = fileType.newInstance();	// new file()
+			FileType container = newInstance(fileSupplier, "file");	// new file()
 			
 			// post creation stuff, and make sure it doesn't already exist
 			return (FileType) postObjectCreationByPath(container, path);
 		}
-		catch (InstantiationException | IllegalAccessException e)
+		catch (CreationException e)
 		{
 			Logger.error("OVERCAST: REMOTE FACTORY: failed to create file object: " + path);
-			Logger.except(e);
-			e.printStackTrace();
 		}
 		
 		return null;
@@ -388,6 +564,7 @@ public class RemoteFactory<FolderSourceType, FolderType extends RemoteFolder<Fol
 	public void setFolderType(Class<FolderType> folderType)
 	{
 		this.folderType = folderType;
+		folderSupplier = supplier(folderType);
 	}
 	
 	/**
@@ -405,6 +582,41 @@ public class RemoteFactory<FolderSourceType, FolderType extends RemoteFolder<Fol
 	public void setFileType(Class<FileType> fileType)
 	{
 		this.fileType = fileType;
+		fileSupplier = supplier(fileType);
+	}
+	
+	/**
+	 * @return the folderSupplier
+	 */
+	public Supplier<FolderType> getFolderSupplier()
+	{
+		return folderSupplier;
+	}
+	
+	/**
+	 * @param folderSupplier
+	 *            the folderSupplier to set
+	 */
+	public void setFolderSupplier(Supplier<FolderType> folderSupplier)
+	{
+		this.folderSupplier = folderSupplier;
+	}
+	
+	/**
+	 * @return the fileSupplier
+	 */
+	public Supplier<FileType> getFileSupplier()
+	{
+		return fileSupplier;
+	}
+	
+	/**
+	 * @param fileSupplier
+	 *            the fileSupplier to set
+	 */
+	public void setFileSupplier(Supplier<FileType> fileSupplier)
+	{
+		this.fileSupplier = fileSupplier;
 	}
 	
 	// ======================================================================================
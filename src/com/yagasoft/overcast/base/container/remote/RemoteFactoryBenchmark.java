@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.container.remote/RemoteFactoryBenchmark.java
+ *
+ *			Modified: 20-Oct-2026 (06:57:03)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.container.remote;
+
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import com.yagasoft.overcast.base.container.Container;
+import com.yagasoft.overcast.base.container.Folder;
+import com.yagasoft.overcast.base.csp.CSP;
+import com.yagasoft.overcast.exception.CreationException;
+
+
+/**
+ * Measures the time and the bytes allocated per container created by {@link RemoteFactory}, using types given as
+ * classes (method handles) and as constructor references.<br />
+ * Run it with the number of containers per round as the argument (default 100,000). The bytes are read from the JVM's
+ * per-thread allocation counter, so they're only shown on JVMs that have it (e.g. HotSpot).
+ */
+public final class RemoteFactoryBenchmark
+{
+
+	/** Rounds run before measuring, so the code is compiled. */
+	private static final int	WARM_UP_ROUNDS	= 5;
+
+	/**
+	 * Instantiates a new remote factory benchmark.
+	 */
+	private RemoteFactoryBenchmark()
+	{}
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the number of containers per round (optional)
+	 * @throws CreationException
+	 *             a container couldn't be created
+	 */
+	public static void main(String[] args) throws CreationException
+	{
+		int count = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+
+		RemoteFactory<Object, BenchmarkFolder, Object, BenchmarkFile, CSP<?, ?, ?>> byClass =
+				new RemoteFactory<Object, BenchmarkFolder, Object, BenchmarkFile, CSP<?, ?, ?>>(
+						null, BenchmarkFolder.class, BenchmarkFile.class, "");
+		RemoteFactory<Object, BenchmarkFolder, Object, BenchmarkFile, CSP<?, ?, ?>> bySupplier =
+				new RemoteFactory<Object, BenchmarkFolder, Object, BenchmarkFile, CSP<?, ?, ?>>(
+						null, BenchmarkFolder::new, BenchmarkFile::new, "");
+
+		for (int round = 0; round <= WARM_UP_ROUNDS; round++)
+		{
+			boolean report = round == WARM_UP_ROUNDS;
+
+			measure("files, class", count, report, () -> createFiles(byClass, count));
+			measure("files, supplier", count, report, () -> createFiles(bySupplier, count));
+			measure("folders, class", count, report, () -> createFolders(byClass, count));
+			measure("folders, supplier", count, report, () -> createFolders(bySupplier, count));
+		}
+	}
+
+	/**
+	 * Creates the files one at a time, keeping only the last, as a tree builder does.
+	 */
+	private static Object createFiles(RemoteFactory<?, ?, ?, ?, ?> factory, int count) throws CreationException
+	{
+		Object file = null;
+
+		for (int i = 0; i < count; i++)
+		{
+			file = factory.createFile();
+		}
+
+		return file;
+	}
+
+	/**
+	 * Creates the folders one at a time, keeping only the last, as a tree builder does.
+	 */
+	private static Object createFolders(RemoteFactory<?, ?, ?, ?, ?> factory, int count) throws CreationException
+	{
+		Object folder = null;
+
+		for (int i = 0; i < count; i++)
+		{
+			folder = factory.createFolder();
+		}
+
+		return folder;
+	}
+
+	/**
+	 * Runs the batch passed, and prints the time and bytes allocated per container if asked to.
+	 */
+	private static void measure(String name, int count, boolean report, Batch batch) throws CreationException
+	{
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		com.sun.management.ThreadMXBean allocation = (threads instanceof com.sun.management.ThreadMXBean)
+				? (com.sun.management.ThreadMXBean) threads : null;
+		long thread = Thread.currentThread().getId();
+
+		long bytes = (allocation == null) ? 0 : allocation.getThreadAllocatedBytes(thread);
+		long time = System.nanoTime();
+
+		Object result = batch.run();
+
+		time = System.nanoTime() - time;
+		bytes = (allocation == null) ? -1 : (allocation.getThreadAllocatedBytes(thread) - bytes);
+
+		if ( !report || (result == null))
+		{
+			return;
+		}
+
+		double seconds = time / 1e9;
+
+		System.out.println(String.format("%-24s %,10d containers: %8.1f ns, %s bytes each; %,10.0f containers/s, %s MB/s"
+				, name, count, (double) time / count
+				, (bytes < 0) ? "?" : String.format("%.1f", (double) bytes / count)
+				, count / seconds
+				, (bytes < 0) ? "?" : String.format("%,.1f", bytes / seconds / (1024 * 1024))));
+	}
+
+	/**
+	 * A batch of containers to create.
+	 */
+	@FunctionalInterface
+	private interface Batch
+	{
+
+		/**
+		 * Creates the containers.
+		 *
+		 * @return the last container created, so the work isn't dropped by the compiler
+		 */
+		Object run() throws CreationException;
+	}
+
+	/**
+	 * A folder that does nothing, to measure the cost of creating it only.
+	 */
+	public static class BenchmarkFolder extends RemoteFolder<Object>
+	{
+
+		@Override
+		protected Object createProcess(Folder<?> parent)
+		{
+			return null;
+		}
+
+		@Override
+		protected void buildTreeProcess(int numberOfLevels, List<Container<?>> childrenArray)
+		{}
+
+		@Override
+		public long calculateSize()
+		{
+			return 0;
+		}
+
+		@Override
+		public void updateFromSource(boolean folderContents, boolean recursively)
+		{}
+
+		@Override
+		public void generateId()
+		{}
+
+		@Override
+		public boolean isExist()
+		{
+			return false;
+		}
+
+		@Override
+		public void updateInfo()
+		{}
+
+		@Override
+		public void updateFromSource()
+		{}
+
+		@Override
+		protected Container<?> copyProcess(Folder<?> destination)
+		{
+			return null;
+		}
+
+		@Override
+		protected Object moveProcess(Folder<?> destination)
+		{
+			return null;
+		}
+
+		@Override
+		protected Object renameProcess(String newName)
+		{
+			return null;
+		}
+
+		@Override
+		protected void deleteProcess()
+		{}
+	}
+
+	/**
+	 * A file that does nothing, to measure the cost of creating it only.
+	 */
+	public static class BenchmarkFile extends RemoteFile<Object>
+	{
+
+		@Override
+		public void generateId()
+		{}
+
+		@Override
+		public boolean isExist()
+		{
+			return false;
+		}
+
+		@Override
+		public void updateInfo()
+		{}
+
+		@Override
+		public void updateFromSource()
+		{}
+
+		@Override
+		protected Container<?> copyProcess(Folder<?> destination)
+		{
+			return null;
+		}
+
+		@Override
+		protected Object moveProcess(Folder<?> destination)
+		{
+			return null;
+		}
+
+		@Override
+		protected Object renameProcess(String newName)
+		{
+			return null;
+		}
+
+		@Override
+		protected void deleteProcess()
+		{}
+	}
+
+}
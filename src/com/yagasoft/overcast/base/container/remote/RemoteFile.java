@@ -6,7 +6,7 @@
  *
  *		Project/File: Overcast/com.yagasoft.overcast.base.container.remote/RemoteFile.java
  *
- *			Modified: 20-Jun-2014 (20:51:53)
+ *			Modified: 20-Oct-2026 (04:15:06)
  *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
  */
 
@@ -15,9 +15,12 @@ package com.yagasoft.overcast.base.container.remote;
 
 import java.net.URL;
 
+import com.yagasoft.overcast.base.container.Container;
 import com.yagasoft.overcast.base.container.File;
+import com.yagasoft.overcast.base.container.Folder;
 import com.yagasoft.overcast.base.container.local.LocalFile;
 import com.yagasoft.overcast.base.container.local.LocalFolder;
+import com.yagasoft.overcast.base.container.operation.Operation;
 import com.yagasoft.overcast.base.container.transfer.DownloadJob;
 import com.yagasoft.overcast.base.container.transfer.event.ITransferProgressListener;
 import com.yagasoft.overcast.base.csp.CSP;
@@ -41,6 +44,9 @@ public abstract class RemoteFile<T> extends File<T>
 	/** The {@link LocalFile} corresponding to this remote file if applicable. */
 	protected LocalFile	localMapping;
 
+	/** The revision of the content as given by the server (e.g. an ETag or version number); null if not supported. */
+	protected String	revision;
+
 	/**
 	 * @see com.yagasoft.overcast.base.container.Container#isLocal()
 	 */
@@ -72,6 +78,24 @@ public abstract class RemoteFile<T> extends File<T>
 		return csp.download(this, parent, overwrite, listener);
 	}
 
+	/**
+	 * Forgets the mapping of this file when it's deleted, so it isn't taken as in sync with its old local file.
+	 *
+	 * @see com.yagasoft.overcast.base.container.Container#postOperation(com.yagasoft.overcast.base.container.Folder,
+	 *      com.yagasoft.overcast.base.container.Container, com.yagasoft.overcast.base.container.operation.Operation)
+	 */
+	@Override
+	protected void postOperation(Folder<?> destination, Container<?> affectedContainer, Operation operation)
+			throws OperationException
+	{
+		if ((operation == Operation.DELETE) && (csp != null) && (csp.getMappingIndex() != null))
+		{
+			csp.getMappingIndex().forget(id);
+		}
+
+		super.postOperation(destination, affectedContainer, operation);
+	}
+
 	// --------------------------------------------------------------------------------------
 	// #region Getters and setters.
 
@@ -109,6 +133,23 @@ public abstract class RemoteFile<T> extends File<T>
 		this.localMapping = localMapping;
 	}
 
+	/**
+	 * @return the revision
+	 */
+	public String getRevision()
+	{
+		return revision;
+	}
+
+	/**
+	 * @param revision
+	 *            the revision to set
+	 */
+	public void setRevision(String revision)
+	{
+		this.revision = revision;
+	}
+
 	// #endregion Getters and setters.
 	// --------------------------------------------------------------------------------------
 
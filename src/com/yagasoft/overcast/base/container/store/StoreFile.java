@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.container.store/StoreFile.java
+ *
+ *			Modified: 19-Oct-2026 (12:14:51)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.container.store;
+
+
+import java.net.URLConnection;
+
+import com.yagasoft.overcast.base.container.Container;
+import com.yagasoft.overcast.base.container.File;
+import com.yagasoft.overcast.base.container.Folder;
+import com.yagasoft.overcast.base.csp.CSP;
+import com.yagasoft.overcast.exception.OperationException;
+
+
+/**
+ * A read-only view of a file entry in a {@link TreeStore}. The source object is the index of the entry.
+ */
+public class StoreFile extends File<Integer>
+{
+	
+	/** The store containing the entry. */
+	protected final TreeStore	store;
+	
+	/**
+	 * Instantiates a new store file view.
+	 *
+	 * @param store
+	 *            the store
+	 * @param index
+	 *            the index of the entry
+	 */
+	@SuppressWarnings("unchecked")
+	public StoreFile(TreeStore store, int index)
+	{
+		this.store = store;
+		csp = (CSP<Integer, ?, ?>) store.getCsp();
+		sourceObject = index;
+		updateInfo();
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Container#generateId()
+	 */
+	@Override
+	public void generateId()
+	{
+		id = store.getId(sourceObject);
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Container#isExist()
+	 */
+	@Override
+	public boolean isExist()
+	{
+		return !store.isRemoved(sourceObject);
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Container#isLocal()
+	 */
+	@Override
+	public boolean isLocal()
+	{
+		return store.isLocal(sourceObject);
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Container#updateInfo()
+	 */
+	@Override
+	public void updateInfo()
+	{
+		name = store.getName(sourceObject);
+		size = store.getSize(sourceObject);
+		date = store.getDate(sourceObject);
+		type = URLConnection.guessContentTypeFromName(name);		// guess type of file (MIME)
+		generateId();
+		
+		if (parent == null)
+		{
+			path = store.getPath(sourceObject);
+		}
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Container#updateFromSource()
+	 */
+	@Override
+	public void updateFromSource()
+	{
+		updateInfo();
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Container#copyProcess(com.yagasoft.overcast.base.container.Folder)
+	 */
+	@Override
+	protected Container<?> copyProcess(Folder<?> destination) throws OperationException
+	{
+		throw new OperationException("Store views are read-only!");
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Container#moveProcess(com.yagasoft.overcast.base.container.Folder)
+	 */
+	@Override
+	protected Integer moveProcess(Folder<?> destination) throws OperationException
+	{
+		throw new OperationException("Store views are read-only!");
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Container#renameProcess(java.lang.String)
+	 */
+	@Override
+	protected Integer renameProcess(String newName) throws OperationException
+	{
+		throw new OperationException("Store views are read-only!");
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Container#deleteProcess()
+	 */
+	@Override
+	protected void deleteProcess() throws OperationException
+	{
+		throw new OperationException("Store views are read-only!");
+	}
+	
+	/**
+	 * @return the store
+	 */
+	public TreeStore getStore()
+	{
+		return store;
+	}
+	
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.container.store/StoreFolder.java
+ *
+ *			Modified: 20-Oct-2026 (06:31:08)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.container.store;
+
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.yagasoft.overcast.base.container.Container;
+import com.yagasoft.overcast.base.container.Folder;
+import com.yagasoft.overcast.base.csp.CSP;
+import com.yagasoft.overcast.exception.CreationException;
+import com.yagasoft.overcast.exception.OperationException;
+
+
+/**
+ * A read-only view of a folder entry in a {@link TreeStore}. The source object is the index of the entry.<br />
+ * Its children are created as views when the folder is loaded, so only the levels browsed exist as objects.
+ */
+public class StoreFolder extends Folder<Integer>
+{
+	
+	/** The store containing the entry. */
+	protected final TreeStore	store;
+	
+	/**
+	 * Instantiates a new store folder view.
+	 *
+	 * @param store
+	 *            the store
+	 * @param index
+	 *            the index of the entry
+	 */
+	@SuppressWarnings("unchecked")
+	public StoreFolder(TreeStore store, int index)
+	{
+		this.store = store;
+		csp = (CSP<Integer, ?, ?>) store.getCsp();
+		sourceObject = index;
+		updateInfo();
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Container#generateId()
+	 */
+	@Override
+	public void generateId()
+	{
+		id = store.getId(sourceObject);
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Container#isExist()
+	 */
+	@Override
+	public boolean isExist()
+	{
+		return !store.isRemoved(sourceObject);
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Container#isLocal()
+	 */
+	@Override
+	public boolean isLocal()
+	{
+		return store.isLocal(sourceObject);
+	}
+	
+	/**
+	 * Views are never kept in the indices of the CSP, as they have the same IDs as the real containers, which they
+	 * would replace there.
+	 *
+	 * @see com.yagasoft.overcast.base.container.Folder#isIndexed()
+	 */
+	@Override
+	protected boolean isIndexed()
+	{
+		return false;
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Container#updateInfo()
+	 */
+	@Override
+	public void updateInfo()
+	{
+		name = store.getName(sourceObject);
+		size = store.getSize(sourceObject);
+		date = store.getDate(sourceObject);
+		generateId();
+		
+		if (parent == null)
+		{
+			path = store.getPath(sourceObject);
+		}
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Container#updateFromSource()
+	 */
+	@Override
+	public void updateFromSource() throws OperationException
+	{
+		updateFromSource(true, false);
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Folder#updateFromSource(boolean, boolean)
+	 */
+	@Override
+	public void updateFromSource(boolean folderContents, boolean recursively) throws OperationException
+	{
+		updateInfo();
+		
+		if (folderContents)
+		{
+			buildTree(recursively);
+		}
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Folder#buildTreeProcess(int, java.util.List)
+	 */
+	@Override
+	protected void buildTreeProcess(int numberOfLevels, List<Container<?>> childrenArray) throws OperationException
+	{
+		int[] children = store.getChildren(sourceObject);
+		List<String> childrenIds = new ArrayList<String>(children.length);
+		
+		for (int child : children)
+		{
+			childrenIds.add(store.getId(child));
+		}
+		
+		// filter, so views are created for new entries only.
+		removeObsolete(childrenIds, true);
+		Set<String> newIds = new HashSet<String>(childrenIds);
+		
+		for (int child : children)
+		{
+			if (newIds.contains(store.getId(child)))
+			{
+				childrenArray.add(store.getView(child));
+			}
+		}
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Folder#calculateSize()
+	 */
+	@Override
+	public long calculateSize()
+	{
+		return size = store.calculateSize(sourceObject);
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Folder#createProcess(com.yagasoft.overcast.base.container.Folder)
+	 */
+	@Override
+	protected Integer createProcess(Folder<?> parent) throws CreationException
+	{
+		throw new CreationException("Store views are read-only!");
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Container#copyProcess(com.yagasoft.overcast.base.container.Folder)
+	 */
+	@Override
+	protected Container<?> copyProcess(Folder<?> destination) throws OperationException
+	{
+		throw new OperationException("Store views are read-only!");
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Container#moveProcess(com.yagasoft.overcast.base.container.Folder)
+	 */
+	@Override
+	protected Integer moveProcess(Folder<?> destination) throws OperationException
+	{
+		throw new OperationException("Store views are read-only!");
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Container#renameProcess(java.lang.String)
+	 */
+	@Override
+	protected Integer renameProcess(String newName) throws OperationException
+	{
+		throw new OperationException("Store views are read-only!");
+	}
+	
+	/**
+	 * @see com.yagasoft.overcast.base.container.Container#deleteProcess()
+	 */
+	@Override
+	protected void deleteProcess() throws OperationException
+	{
+		throw new OperationException("Store views are read-only!");
+	}
+	
+	/**
+	 * @return the store
+	 */
+	public TreeStore getStore()
+	{
+		return store;
+	}
+	
+}
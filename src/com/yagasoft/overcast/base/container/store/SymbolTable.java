@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.container.store/SymbolTable.java
+ *
+ *			Modified: 19-Oct-2026 (11:03:15)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.container.store;
+
+
+import java.util.Arrays;
+
+
+/**
+ * A table of interned strings, each mapped to an integer ID, using primitive arrays only (open addressing).<br />
+ * Writes are synchronised; reads are not blocked. The arrays are published together through one volatile reference
+ * when they grow, so a read never pairs a table with a symbols array it doesn't belong to.
+ */
+public class SymbolTable
+{
+	
+	/** Returned when a string is not in the table. */
+	public static final int	NONE	= -1;
+	
+	/** The contents of the table; replaced as a whole when they grow. */
+	protected volatile Contents	contents;
+	
+	/** Number of symbols in the table. */
+	protected volatile int		count;
+	
+	/**
+	 * Instantiates a new symbol table.
+	 *
+	 * @param initialCapacity
+	 *            Expected number of symbols.
+	 */
+	public SymbolTable(int initialCapacity)
+	{
+		int capacity = Math.max(16, initialCapacity);
+		contents = new Contents(new String[capacity], new int[tableSizeFor(capacity)]);
+	}
+	
+	/**
+	 * Gets the ID of the string passed, adding it to the table if it's not there.
+	 *
+	 * @param symbol
+	 *            the string
+	 * @return the ID
+	 */
+	public synchronized int intern(String symbol)
+	{
+		Contents contents = this.contents;
+		int slot = find(contents, symbol);
+		
+		if (contents.table[slot] != 0)
+		{
+			return contents.table[slot] - 1;
+		}
+		
+		int id = count;
+		
+		// grow the symbols array if needed.
+		if (id == contents.symbols.length)
+		{
+			contents = new Contents(Arrays.copyOf(contents.symbols, id * 2), contents.table);
+			this.contents = contents;
+		}
+		
+		// the symbol is set before its slot, so a reader that finds the slot finds the symbol as well.
+		contents.symbols[id] = symbol;
+		contents.table[slot] = id + 1;
+		count = id + 1;
+		
+		// keep the load factor at one half or lower.
+		if ((count * 2) > contents.table.length)
+		{
+			rehash(contents);
+		}
+		
+		return id;
+	}
+	
+	/**
+	 * Gets the ID of the string passed without adding it.
+	 *
+	 * @param symbol
+	 *            the string
+	 * @return the ID, or {@link #NONE} if it's not in the table
+	 */
+	public int indexOf(String symbol)
+	{
+		Contents contents = this.contents;
+		
+		return contents.table[find(contents, symbol)] - 1;
+	}
+	
+	/**
+	 * Gets the string mapped to the ID passed.
+	 *
+	 * @param id
+	 *            the ID
+	 * @return the string
+	 */
+	public String get(int id)
+	{
+		return contents.symbols[id];
+	}
+	
+	/**
+	 * @return the number of symbols in the table
+	 */
+	public int size()
+	{
+		return count;
+	}
+	
+	/**
+	 * Finds the slot of the string passed in the table, or the empty slot where it should be put.
+	 */
+	private static int find(Contents contents, String symbol)
+	{
+		int[] table = contents.table;
+		String[] symbols = contents.symbols;
+		int mask = table.length - 1;
+		int slot = mix(symbol.hashCode()) & mask;
+		
+		while ((table[slot] != 0) && !symbol.equals(symbols[table[slot] - 1]))
+		{
+			slot = (slot + 1) & mask;
+		}
+		
+		return slot;
+	}
+	
+	private void rehash(Contents contents)
+	{
+		int[] newTable = new int[contents.table.length * 2];
+		int mask = newTable.length - 1;
+		
+		for (int i = 0; i < count; i++)
+		{
+			int slot = mix(contents.symbols[i].hashCode()) & mask;
+			
+			while (newTable[slot] != 0)
+			{
+				slot = (slot + 1) & mask;
+			}
+			
+			newTable[slot] = i + 1;
+		}
+		
+		this.contents = new Contents(contents.symbols, newTable);
+	}
+	
+	private static int mix(int hash)
+	{
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+	
+	private static int tableSizeFor(int capacity)
+	{
+		return Integer.highestOneBit(Math.max(capacity * 2 - 1, 1)) << 1;
+	}
+	
+	/**
+	 * The arrays of the table, published together.
+	 */
+	protected static final class Contents
+	{
+		
+		/** Strings mapped by their IDs. */
+		final String[]	symbols;
+		
+		/** Hash table of symbol IDs plus one (zero is an empty slot). Its length is always a power of two. */
+		final int[]		table;
+		
+		Contents(String[] symbols, int[] table)
+		{
+			this.symbols = symbols;
+			this.table = table;
+		}
+	}
+	
+}
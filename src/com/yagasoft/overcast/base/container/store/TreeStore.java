@@ -0,0 +1,834 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.container.store/TreeStore.java
+ *
+ *			Modified: 20-Oct-2026 (06:24:55)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.container.store;
+
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import com.yagasoft.overcast.base.container.Container;
+import com.yagasoft.overcast.base.container.Folder;
+import com.yagasoft.overcast.base.csp.CSP;
+
+
+/**
+ * A compact store of the meta info of a whole file tree, using primitive arrays (columns) instead of an object per entry.<br />
+ * Entries are addressed by an index; names and IDs are interned in symbol tables. Children are a doubly linked list
+ * per parent, and are also hashed by parent and name (ignoring case), so a child is found, added or removed without
+ * scanning its siblings. Walking a sub-tree uses an explicit stack, so deep trees don't overflow the thread's stack.
+ * The tree can be browsed using the usual {@link Folder} API through {@link StoreFolder} and {@link StoreFile} views,
+ * which are created on demand only for the levels browsed.<br />
+ * <br />
+ * Writes are synchronised; reads are not blocked. The columns are published together through one volatile reference
+ * when they grow, so a read never mixes columns of different capacities. Removed entries keep their slots for the life
+ * of the store, as the views refer to entries by index.
+ */
+public class TreeStore
+{
+	
+	/** Index of no entry. */
+	public static final int			NONE	= -1;
+	
+	/** Index of the root entry. */
+	public static final int			ROOT	= 0;
+	
+	/** Entry is a folder. */
+	protected static final byte		FOLDER	= 1;
+	
+	/** Entry is local. */
+	protected static final byte		LOCAL	= 2;
+	
+	/** Entry was removed. */
+	protected static final byte		REMOVED	= 4;
+	
+	/** CSP of the containers in this store. */
+	protected final CSP<?, ?, ?>	csp;
+	
+	/** Interned names. */
+	protected final SymbolTable		names;
+	
+	/** Interned IDs. */
+	protected final SymbolTable		ids;
+	
+	/** The columns of the entries; replaced as a whole when they grow. */
+	protected volatile Columns		columns;
+	
+	/** Number of entries, including removed ones. */
+	protected volatile int			count;
+	
+	/**
+	 * Instantiates a new tree store, with a root entry at {@link #ROOT}.
+	 *
+	 * @param csp
+	 *            CSP of the containers in this store.
+	 * @param rootId
+	 *            Root ID.
+	 * @param rootName
+	 *            Root name.
+	 * @param local
+	 *            Is this a local tree?
+	 * @param initialCapacity
+	 *            Expected number of entries.
+	 */
+	public TreeStore(CSP<?, ?, ?> csp, String rootId, String rootName, boolean local, int initialCapacity)
+	{
+		this.csp = csp;
+		
+		int capacity = Math.max(16, initialCapacity);
+		names = new SymbolTable(capacity / 4);		// names repeat a lot.
+		ids = new SymbolTable(capacity);
+		columns = new Columns(capacity);
+		
+		add(NONE, rootId, rootName, true, local, 0, 0);
+	}
+	
+	// --------------------------------------------------------------------------------------
+	// #region Writing.
+	
+	/**
+	 * Adds an entry to the store. If the ID already exists, the existing entry is updated and moved under the parent passed.
+	 *
+	 * @param parent
+	 *            Parent index.
+	 * @param id
+	 *            ID.
+	 * @param name
+	 *            Name.
+	 * @param folder
+	 *            Is it a folder?
+	 * @param local
+	 *            Is it local?
+	 * @param size
+	 *            Size.
+	 * @param date
+	 *            Modified date.
+	 * @return the index of the entry
+	 */
+	public synchronized int add(int parent, String id, String name, boolean folder, boolean local, long size, long date)
+	{
+		int existing = indexOf(id);
+		
+		if (existing != NONE)
+		{
+			move(existing, parent);
+			rename(existing, name);
+			
+			Columns columns = this.columns;
+			columns.sizes[existing] = size;
+			columns.dates[existing] = date;
+			
+			return existing;
+		}
+		
+		int index = count;
+		int idSymbol = ids.intern(id);
+		
+		ensureCapacity(index + 1, idSymbol + 1);
+		
+		Columns columns = this.columns;
+		columns.parents[index] = parent;
+		columns.nameSymbols[index] = names.intern(name);
+		columns.idSymbols[index] = idSymbol;
+		columns.firstChildren[index] = NONE;
+		columns.nextSiblings[index] = NONE;
+		columns.previousSiblings[index] = NONE;
+		columns.nextInBuckets[index] = NONE;
+		columns.sizes[index] = size;
+		columns.dates[index] = date;
+		columns.flags[index] = (byte) ((folder ? FOLDER : 0) | (local ? LOCAL : 0));
+		columns.entriesById[idSymbol] = index;
+		link(index, parent);
+		hash(index);
+		count = index + 1;
+		
+		return index;
+	}
+	
+	/**
+	 * Adds the container passed, and its loaded sub-tree, under the parent entry passed.
+	 *
+	 * @param container
+	 *            the container
+	 * @param parent
+	 *            Parent index.
+	 * @return the index of the entry
+	 */
+	public synchronized int addTree(Container<?> container, int parent)
+	{
+		Deque<Container<?>> containers = new ArrayDeque<Container<?>>();
+		Deque<Integer> parents = new ArrayDeque<Integer>();
+		containers.push(container);
+		parents.push(parent);
+		int root = NONE;
+		
+		while ( !containers.isEmpty())
+		{
+			Container<?> entry = containers.pop();
+			int index = add(parents.pop(), entry.getId(), entry.getName(), entry.isFolder(), entry.isLocal()
+					, entry.getSize(), entry.getDate());
+			
+			if (root == NONE)
+			{
+				root = index;
+			}
+			
+			if (entry.isFolder())
+			{
+				for (Container<?> child : ((Folder<?>) entry).getChildrenList())
+				{
+					containers.push(child);
+					parents.push(index);
+				}
+			}
+		}
+		
+		return root;
+	}
+	
+	/**
+	 * Removes the entry and its sub-tree from the store.
+	 *
+	 * @param index
+	 *            the index
+	 */
+	public synchronized void remove(int index)
+	{
+		if ((index == ROOT) || isRemoved(index))
+		{
+			return;
+		}
+		
+		unhash(index);
+		unlink(index);
+		markRemoved(index);
+	}
+	
+	/**
+	 * Moves the entry under another parent in constant time, as the paths are derived from the parents.
+	 *
+	 * @param index
+	 *            the index
+	 * @param parent
+	 *            the new parent index
+	 * @throws IllegalArgumentException
+	 *             the new parent is the entry itself or one of its descendants
+	 */
+	public synchronized void move(int index, int parent)
+	{
+		int[] parents = columns.parents;
+		
+		if (parents[index] == parent)
+		{
+			return;
+		}
+		
+		// moving an entry under its own sub-tree would detach the sub-tree from the root in a cycle.
+		for (int ancestor = parent; ancestor != NONE; ancestor = parents[ancestor])
+		{
+			if (ancestor == index)
+			{
+				throw new IllegalArgumentException("Can't move entry " + index + " under its own sub-tree.");
+			}
+		}
+		
+		unhash(index);
+		unlink(index);
+		parents[index] = parent;
+		link(index, parent);
+		hash(index);
+	}
+	
+	/**
+	 * Renames the entry.
+	 *
+	 * @param index
+	 *            the index
+	 * @param name
+	 *            the new name
+	 */
+	public synchronized void rename(int index, String name)
+	{
+		boolean hashed = unhash(index);
+		columns.nameSymbols[index] = names.intern(name);
+		
+		if (hashed)
+		{
+			hash(index);
+		}
+	}
+	
+	/**
+	 * Sets the size of the entry.
+	 *
+	 * @param index
+	 *            the index
+	 * @param size
+	 *            the size
+	 */
+	public synchronized void setSize(int index, long size)
+	{
+		columns.sizes[index] = size;
+	}
+	
+	/**
+	 * Sets the modified date of the entry.
+	 *
+	 * @param index
+	 *            the index
+	 * @param date
+	 *            the date
+	 */
+	public synchronized void setDate(int index, long date)
+	{
+		columns.dates[index] = date;
+	}
+	
+	private void link(int index, int parent)
+	{
+		if (parent != NONE)
+		{
+			Columns columns = this.columns;
+			int first = columns.firstChildren[parent];
+			columns.previousSiblings[index] = NONE;
+			columns.nextSiblings[index] = first;
+			
+			if (first != NONE)
+			{
+				columns.previousSiblings[first] = index;
+			}
+			
+			columns.firstChildren[parent] = index;
+		}
+	}
+	
+	private void unlink(int index)
+	{
+		Columns columns = this.columns;
+		int parent = columns.parents[index];
+		
+		if (parent == NONE)
+		{
+			return;
+		}
+		
+		int previous = columns.previousSiblings[index];
+		int next = columns.nextSiblings[index];
+		
+		if (previous == NONE)
+		{
+			columns.firstChildren[parent] = next;
+		}
+		else
+		{
+			columns.nextSiblings[previous] = next;
+		}
+		
+		if (next != NONE)
+		{
+			columns.previousSiblings[next] = previous;
+		}
+		
+		columns.previousSiblings[index] = NONE;
+		columns.nextSiblings[index] = NONE;
+	}
+	
+	/**
+	 * Adds the entry to the hash of children by parent and name.
+	 */
+	private void hash(int index)
+	{
+		Columns columns = this.columns;
+		int parent = columns.parents[index];
+		
+		if (parent == NONE)
+		{
+			return;
+		}
+		
+		int bucket = bucketOf(columns, parent, names.get(columns.nameSymbols[index]));
+		columns.nextInBuckets[index] = columns.buckets[bucket];
+		columns.buckets[bucket] = index;
+	}
+	
+	/**
+	 * Removes the entry from the hash of children by parent and name.
+	 *
+	 * @return true, if it was hashed
+	 */
+	private boolean unhash(int index)
+	{
+		Columns columns = this.columns;
+		int parent = columns.parents[index];
+		
+		if (parent == NONE)
+		{
+			return false;
+		}
+		
+		int bucket = bucketOf(columns, parent, names.get(columns.nameSymbols[index]));
+		
+		if (columns.buckets[bucket] == index)
+		{
+			columns.buckets[bucket] = columns.nextInBuckets[index];
+			columns.nextInBuckets[index] = NONE;
+			return true;
+		}
+		
+		for (int entry = columns.buckets[bucket]; entry != NONE; entry = columns.nextInBuckets[entry])
+		{
+			if (columns.nextInBuckets[entry] == index)
+			{
+				columns.nextInBuckets[entry] = columns.nextInBuckets[index];
+				columns.nextInBuckets[index] = NONE;
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Marks the entry and its sub-tree as removed, and drops them from the ID and children hashes.
+	 */
+	private void markRemoved(int index)
+	{
+		Columns columns = this.columns;
+		int[] stack = new int[16];
+		int top = 0;
+		stack[top++] = index;
+		
+		while (top > 0)
+		{
+			int entry = stack[--top];
+			
+			if (entry != index)
+			{
+				unhash(entry);
+			}
+			
+			columns.flags[entry] |= REMOVED;
+			columns.entriesById[columns.idSymbols[entry]] = NONE;
+			
+			for (int child = columns.firstChildren[entry]; child != NONE; child = columns.nextSiblings[child])
+			{
+				if (top == stack.length)
+				{
+					stack = Arrays.copyOf(stack, top * 2);
+				}
+				
+				stack[top++] = child;
+			}
+		}
+	}
+	
+	/**
+	 * Grows the columns if needed, and publishes all of them at once. The children hash is rebuilt when the entries
+	 * columns grow, so its load stays under one entry per bucket.
+	 */
+	private void ensureCapacity(int capacity, int idCapacity)
+	{
+		Columns columns = this.columns;
+		int length = columns.parents.length;
+		int idLength = columns.entriesById.length;
+		
+		if ((capacity > length) || (idCapacity > idLength))
+		{
+			Columns grown = new Columns(columns
+					, (capacity > length) ? Math.max(capacity, length + (length >> 1)) : length
+					, (idCapacity > idLength) ? Math.max(idCapacity, idLength * 2) : idLength);
+			
+			if (grown.buckets.length != columns.buckets.length)
+			{
+				for (int index = 0; index < count; index++)
+				{
+					int parent = grown.parents[index];
+					
+					if ((parent != NONE) && ((grown.flags[index] & REMOVED) == 0))
+					{
+						int bucket = bucketOf(grown, parent, names.get(grown.nameSymbols[index]));
+						grown.nextInBuckets[index] = grown.buckets[bucket];
+						grown.buckets[bucket] = index;
+					}
+				}
+			}
+			
+			this.columns = grown;
+		}
+	}
+	
+	/**
+	 * Gets the bucket of the child with the name passed (ignoring case) under the parent passed.
+	 */
+	private static int bucketOf(Columns columns, int parent, String name)
+	{
+		int hash = (parent * 0x9E3779B9) + Container.foldName(name).hashCode();
+		return (hash ^ (hash >>> 16)) & (columns.buckets.length - 1);
+	}
+	
+	// #endregion Writing.
+	// --------------------------------------------------------------------------------------
+	
+	// --------------------------------------------------------------------------------------
+	// #region Reading.
+	
+	/**
+	 * Gets the index of the entry with the ID passed.
+	 *
+	 * @param id
+	 *            the ID
+	 * @return the index, or {@link #NONE} if it doesn't exist
+	 */
+	public int indexOf(String id)
+	{
+		int idSymbol = ids.indexOf(id);
+		int[] entriesById = columns.entriesById;
+		
+		return ((idSymbol == SymbolTable.NONE) || (idSymbol >= entriesById.length)) ? NONE : entriesById[idSymbol];
+	}
+	
+	/**
+	 * Finds the child with the name passed (ignoring case).
+	 *
+	 * @param parent
+	 *            Parent index.
+	 * @param name
+	 *            the name
+	 * @return the index, or {@link #NONE} if it doesn't exist
+	 */
+	public int findChild(int parent, String name)
+	{
+		Columns columns = this.columns;
+		
+		for (int child = columns.buckets[bucketOf(columns, parent, name)]; child != NONE
+				; child = columns.nextInBuckets[child])
+		{
+			if ((columns.parents[child] == parent) && names.get(columns.nameSymbols[child]).equalsIgnoreCase(name))
+			{
+				return child;
+			}
+		}
+		
+		return NONE;
+	}
+	
+	/**
+	 * Gets the children indices of the entry.
+	 *
+	 * @param parent
+	 *            Parent index.
+	 * @return the children indices
+	 */
+	public int[] getChildren(int parent)
+	{
+		Columns columns = this.columns;
+		int[] children = new int[8];
+		int size = 0;
+		
+		for (int child = columns.firstChildren[parent]; child != NONE; child = columns.nextSiblings[child])
+		{
+			if (size == children.length)
+			{
+				children = Arrays.copyOf(children, size * 2);
+			}
+			
+			children[size++] = child;
+		}
+		
+		return Arrays.copyOf(children, size);
+	}
+	
+	/**
+	 * Gets the path of the entry, derived from its parents.
+	 *
+	 * @param index
+	 *            the index
+	 * @return the path
+	 */
+	public String getPath(int index)
+	{
+		if (index == ROOT)
+		{
+			return "/";
+		}
+		
+		Columns columns = this.columns;
+		StringBuilder path = new StringBuilder();
+		
+		for (int entry = index; (entry != ROOT) && (entry != NONE); entry = columns.parents[entry])
+		{
+			path.insert(0, names.get(columns.nameSymbols[entry])).insert(0, '/');
+		}
+		
+		return path.toString();
+	}
+	
+	/**
+	 * Calculates the total size of the files under the entry.
+	 *
+	 * @param index
+	 *            the index
+	 * @return the size
+	 */
+	public long calculateSize(int index)
+	{
+		Columns columns = this.columns;
+		int[] stack = new int[16];
+		int top = 0;
+		stack[top++] = index;
+		long size = 0;
+		
+		while (top > 0)
+		{
+			int entry = stack[--top];
+			
+			if ((columns.flags[entry] & FOLDER) == 0)
+			{
+				size += columns.sizes[entry];
+				continue;
+			}
+			
+			for (int child = columns.firstChildren[entry]; child != NONE; child = columns.nextSiblings[child])
+			{
+				if (top == stack.length)
+				{
+					stack = Arrays.copyOf(stack, top * 2);
+				}
+				
+				stack[top++] = child;
+			}
+		}
+		
+		return size;
+	}
+	
+	/**
+	 * Creates a view of the entry, which can be used through the {@link Container} API.
+	 *
+	 * @param index
+	 *            the index
+	 * @return the view
+	 */
+	public Container<Integer> getView(int index)
+	{
+		return isFolder(index) ? new StoreFolder(this, index) : new StoreFile(this, index);
+	}
+	
+	/**
+	 * @return a view of the root
+	 */
+	public StoreFolder getRoot()
+	{
+		return new StoreFolder(this, ROOT);
+	}
+	
+	/**
+	 * @param index
+	 *            the index
+	 * @return the parent index of the entry
+	 */
+	public int getParent(int index)
+	{
+		return columns.parents[index];
+	}
+	
+	/**
+	 * @param index
+	 *            the index
+	 * @return the name of the entry
+	 */
+	public String getName(int index)
+	{
+		return names.get(columns.nameSymbols[index]);
+	}
+	
+	/**
+	 * @param index
+	 *            the index
+	 * @return the ID of the entry
+	 */
+	public String getId(int index)
+	{
+		return ids.get(columns.idSymbols[index]);
+	}
+	
+	/**
+	 * @param index
+	 *            the index
+	 * @return the size of the entry
+	 */
+	public long getSize(int index)
+	{
+		return columns.sizes[index];
+	}
+	
+	/**
+	 * @param index
+	 *            the index
+	 * @return the modified date of the entry
+	 */
+	public long getDate(int index)
+	{
+		return columns.dates[index];
+	}
+	
+	/**
+	 * @param index
+	 *            the index
+	 * @return true, if the entry is a folder
+	 */
+	public boolean isFolder(int index)
+	{
+		return (columns.flags[index] & FOLDER) != 0;
+	}
+	
+	/**
+	 * @param index
+	 *            the index
+	 * @return true, if the entry is local
+	 */
+	public boolean isLocal(int index)
+	{
+		return (columns.flags[index] & LOCAL) != 0;
+	}
+	
+	/**
+	 * @param index
+	 *            the index
+	 * @return true, if the entry was removed
+	 */
+	public boolean isRemoved(int index)
+	{
+		return (columns.flags[index] & REMOVED) != 0;
+	}
+	
+	/**
+	 * @return the number of entries, including removed ones
+	 */
+	public int size()
+	{
+		return count;
+	}
+	
+	/**
+	 * @return the csp
+	 */
+	public CSP<?, ?, ?> getCsp()
+	{
+		return csp;
+	}
+	
+	// #endregion Reading.
+	// --------------------------------------------------------------------------------------
+	
+	/**
+	 * The columns of the entries, published together. The arrays are replaced only as a whole, by copying into a new
+	 * instance.
+	 */
+	protected static final class Columns
+	{
+		
+		/** Parent index of each entry. */
+		final int[]		parents;
+		
+		/** Name symbol of each entry. */
+		final int[]		nameSymbols;
+		
+		/** ID symbol of each entry. */
+		final int[]		idSymbols;
+		
+		/** First child index of each entry (children are a linked list). */
+		final int[]		firstChildren;
+		
+		/** Next sibling index of each entry. */
+		final int[]		nextSiblings;
+		
+		/** Previous sibling index of each entry. */
+		final int[]		previousSiblings;
+		
+		/** First entry in each bucket of the children hash (by parent and name); the length is a power of 2. */
+		final int[]		buckets;
+		
+		/** Next entry in the same bucket of the children hash. */
+		final int[]		nextInBuckets;
+		
+		/** Entry index mapped by its ID symbol. */
+		final int[]		entriesById;
+		
+		/** Size of each entry. */
+		final long[]	sizes;
+		
+		/** Modified date of each entry. */
+		final long[]	dates;
+		
+		/** Flags of each entry. */
+		final byte[]	flags;
+		
+		Columns(int capacity)
+		{
+			parents = new int[capacity];
+			nameSymbols = new int[capacity];
+			idSymbols = new int[capacity];
+			firstChildren = new int[capacity];
+			nextSiblings = new int[capacity];
+			previousSiblings = new int[capacity];
+			buckets = new int[bucketsFor(capacity)];
+			nextInBuckets = new int[capacity];
+			entriesById = new int[capacity];
+			sizes = new long[capacity];
+			dates = new long[capacity];
+			flags = new byte[capacity];
+			
+			Arrays.fill(entriesById, NONE);
+			Arrays.fill(buckets, NONE);
+		}
+		
+		Columns(Columns columns, int capacity, int idCapacity)
+		{
+			parents = Arrays.copyOf(columns.parents, capacity);
+			nameSymbols = Arrays.copyOf(columns.nameSymbols, capacity);
+			idSymbols = Arrays.copyOf(columns.idSymbols, capacity);
+			firstChildren = Arrays.copyOf(columns.firstChildren, capacity);
+			nextSiblings = Arrays.copyOf(columns.nextSiblings, capacity);
+			previousSiblings = Arrays.copyOf(columns.previousSiblings, capacity);
+			sizes = Arrays.copyOf(columns.sizes, capacity);
+			dates = Arrays.copyOf(columns.dates, capacity);
+			flags = Arrays.copyOf(columns.flags, capacity);
+			entriesById = Arrays.copyOf(columns.entriesById, idCapacity);
+			
+			Arrays.fill(entriesById, columns.entriesById.length, idCapacity, NONE);
+			
+			// the hash is rebuilt by the store if the number of buckets changes.
+			if (bucketsFor(capacity) == columns.buckets.length)
+			{
+				buckets = Arrays.copyOf(columns.buckets, columns.buckets.length);
+				nextInBuckets = Arrays.copyOf(columns.nextInBuckets, capacity);
+			}
+			else
+			{
+				buckets = new int[bucketsFor(capacity)];
+				nextInBuckets = new int[capacity];
+				Arrays.fill(buckets, NONE);
+			}
+		}
+		
+		/**
+		 * Gets the number of buckets for the capacity passed: the smallest power of 2 not less than it.
+		 */
+		static int bucketsFor(int capacity)
+		{
+			return Math.max(16, Integer.highestOneBit(capacity - 1) << 1);
+		}
+	}
+	
+}
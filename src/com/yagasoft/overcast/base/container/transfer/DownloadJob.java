@@ -6,7 +6,7 @@
  *
  *		Project/File: Overcast/com.yagasoft.overcast.base.container.transfer/DownloadJob.java
  *
- *			Modified: 24-Jun-2014 (21:33:03)
+ *			Modified: 20-Oct-2026 (06:02:18)
  *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
  */
 
@@ -21,6 +21,7 @@ import com.yagasoft.overcast.base.container.Folder;
 import com.yagasoft.overcast.base.container.local.LocalFile;
 import com.yagasoft.overcast.base.container.remote.RemoteFile;
 import com.yagasoft.overcast.base.container.transfer.event.TransferState;
+import com.yagasoft.overcast.exception.OperationException;
 
 
 /**
@@ -74,9 +75,20 @@ public abstract class DownloadJob<T> extends TransferJob<T>
 	@Override
 	public void success()
 	{
-		localFile.updateInfo();
+		// the file is new on the disk, so read its size and date before it's added and mapped.
+		try
+		{
+			localFile.updateFromSource();
+		}
+		catch (OperationException e)
+		{
+			Logger.error("OVERCAST: DOWNJOB: failed to read: " + localFile.getPath());
+			Logger.except(e);
+		}
+
 		localFile.setRemoteMapping(remoteFile);
 		remoteFile.setLocalMapping(localFile);
+		recordMapping(remoteFile);
 		parent.add(localFile);
 		Logger.info("OVERCAST: DOWNJOB: success: " + localFile.getPath());
 		notifyProgressListeners(TransferState.COMPLETED, 1.0f);
@@ -13,13 +13,16 @@
 package com.yagasoft.overcast.base.container.transfer;
 
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import com.yagasoft.logger.Logger;
+import com.yagasoft.overcast.base.cache.MappingIndex;
 import com.yagasoft.overcast.base.container.File;
 import com.yagasoft.overcast.base.container.Folder;
 import com.yagasoft.overcast.base.container.local.LocalFile;
+import com.yagasoft.overcast.base.container.remote.RemoteFile;
 import com.yagasoft.overcast.base.container.transfer.event.ITransferProgressListener;
 import com.yagasoft.overcast.base.container.transfer.event.ITransferrable;
 import com.yagasoft.overcast.base.container.transfer.event.TransferEvent;
@@ -102,6 +105,33 @@ public abstract class TransferJob<T> implements ITransferrable
 	 */
 	public abstract void failure();
 	
+	/**
+	 * Records the mapping between the local and remote files in the CSP's mapping index, if set.<br />
+	 * A failure is only logged, as the transfer itself succeeded.
+	 *
+	 * @param remoteFile
+	 *            the remote file
+	 */
+	protected void recordMapping(RemoteFile<?> remoteFile)
+	{
+		MappingIndex mappingIndex = csp.getMappingIndex();
+		
+		if (mappingIndex == null)
+		{
+			return;
+		}
+		
+		try
+		{
+			mappingIndex.record(localFile, remoteFile);
+		}
+		catch (IOException e)
+		{
+			Logger.error("OVERCAST: TRANSFER JOB: failed to record mapping: " + localFile.getPath());
+			Logger.except(e);
+		}
+	}
+	
 	/**
 	 * Cancel the transfer if supported. This should be overridden and the procedure implemented.
 	 */
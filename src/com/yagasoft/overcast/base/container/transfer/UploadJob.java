@@ -90,6 +90,7 @@ public abstract class UploadJob<T, S> extends TransferJob<T>
 		remoteFile.setSourceObject(file);
 		localFile.setRemoteMapping(remoteFile);
 		remoteFile.setLocalMapping(localFile);
+		recordMapping(remoteFile);
 		parent.add(remoteFile);
 		Logger.info("OVERCAST: UPLOAD JOB: uploaded successfully: " + remoteFile.getPath());
 		notifyProgressListeners(TransferState.COMPLETED, 1.0f);
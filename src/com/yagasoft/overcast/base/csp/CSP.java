@@ -13,13 +13,19 @@
 package com.yagasoft.overcast.base.csp;
 
 
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.yagasoft.logger.Logger;
+import com.yagasoft.overcast.base.cache.MappingIndex;
 import com.yagasoft.overcast.base.container.Container;
 import com.yagasoft.overcast.base.container.Folder;
 import com.yagasoft.overcast.base.container.local.LocalFile;
@@ -95,6 +101,18 @@ public abstract class CSP<SourceFileType, DownloaderType, UploaderType>
 	/** Current upload thread. */
 	protected Thread											currentUploadThread;
 
+	/** Index of the remote file tree by path, maintained by the folders as children are added and removed. */
+	protected final PathIndex									pathIndex		= new PathIndex(this);
+
+	/** Index of the remote containers by ID, maintained by the folders as children are added and removed. */
+	protected final Map<String, Container<?>>					idIndex			= new ConcurrentHashMap<String, Container<?>>();
+
+	/** Index of the names in the remote file tree, for partial name searches. */
+	protected final NameIndex									nameIndex		= new NameIndex(this);
+
+	/** Persistent mappings of the files transferred; recorded by the jobs on success if set. */
+	protected MappingIndex										mappingIndex;
+
 	/**
 	 * Destroy instance. Useful if this is a singleton in implementation.
 	 */
@@ -140,6 +158,7 @@ public abstract class CSP<SourceFileType, DownloaderType, UploaderType>
 
 		// build more levels if required.
 		remoteFileTree.buildTree(recursively);
+		fullRemoteTreeLoaded = fullRemoteTreeLoaded || recursively;
 
 		Logger.info(name.toUpperCase() + ": CSP: finished building the root tree");
 	}
@@ -176,6 +195,10 @@ public abstract class CSP<SourceFileType, DownloaderType, UploaderType>
 	public void resetTree()
 	{
 		remoteFileTree = null;
+		fullRemoteTreeLoaded = false;
+		pathIndex.clear();
+		idIndex.clear();
+		nameIndex.clear();
 	}
 
 	/**
@@ -288,9 +311,9 @@ public abstract class CSP<SourceFileType, DownloaderType, UploaderType>
 		if ((result.isEmpty()) || !result.get(0).isFolder())
 		{
 			// ... create the folder at the destination.
-			localFolder = new LocalFolder();
+			// the path gives the folder its name; creating it reads its info from the disk.
+			localFolder = new LocalFolder(Paths.get(parent.getPath(), folder.getName()));
 			localFolder.create(parent, event -> {});
-			localFolder.updateFromSource(true, false);		// update the folder info
 		}
 		else
 		{	// ... else, just use the one at the destination.
@@ -762,7 +785,8 @@ public abstract class CSP<SourceFileType, DownloaderType, UploaderType>
 	}
 
 	/**
-	 * Search for the container in the file tree online using the path passed.
+	 * Search for the container in the file tree online using the path passed.<br />
+	 * The path index is checked first; the tree is only walked (and listed if needed) if the path is not indexed.
 	 *
 	 * @param path
 	 *            the path to look through for the container.
@@ -771,6 +795,13 @@ public abstract class CSP<SourceFileType, DownloaderType, UploaderType>
 	 */
 	public Container<?> searchContainerPath(String path) throws OperationException
 	{
+		Container<?> indexed = pathIndex.resolve(path);
+
+		if (indexed != null)
+		{
+			return indexed;
+		}
+
 		ArrayList<String> splitPath = splitPath(path);
 		// get the name from the last entry in the path.
 		String containerName = splitPath.remove(splitPath.size() - 1);
@@ -805,6 +836,52 @@ public abstract class CSP<SourceFileType, DownloaderType, UploaderType>
 
 	}
 
+	/**
+	 * Search the whole remote tree for the container with the ID passed.<br />
+	 * The ID index is checked first; the tree is only walked (and listed if needed) if the ID is not indexed.
+	 *
+	 * @param id
+	 *            the ID
+	 * @return the container found, or null if nothing is found.
+	 */
+	public Container<?> searchById(String id)
+	{
+		return (remoteFileTree == null) ? null : remoteFileTree.searchById(id, true);
+	}
+
+	/**
+	 * Search the whole remote tree for containers with names containing the string passed.<br />
+	 * The name index is used if the full tree is loaded and the string is long enough; else, the tree is walked
+	 * (and listed if needed). Results are ranked, best first (see {@link NameIndex#search(String, Folder, int)}).
+	 *
+	 * @param name
+	 *            the string to look for in the names
+	 * @param limit
+	 *            maximum number of results
+	 * @return the containers found
+	 */
+	public List<Container<?>> searchByName(String name, int limit)
+	{
+		if (remoteFileTree == null)
+		{
+			return new ArrayList<Container<?>>();
+		}
+
+		List<Container<?>> result = fullRemoteTreeLoaded ? nameIndex.search(name, null, limit) : null;
+
+		if (result == null)
+		{
+			String folded = Container.foldName(name);
+
+			result = remoteFileTree.searchByName(name, true, true);
+			result.sort(Comparator.comparing((Container<?> container) -> !Container.foldName(container.getName()).startsWith(folded))
+					.thenComparingInt(container -> container.getName().length()));
+			result = new ArrayList<Container<?>>(result.subList(0, Math.min(limit, result.size())));
+		}
+
+		return result;
+	}
+
 	// ======================================================================================
 	// #endregion Search by path.
 	// //////////////////////////////////////////////////////////////////////////////////////
@@ -829,6 +906,25 @@ public abstract class CSP<SourceFileType, DownloaderType, UploaderType>
 		return splitPath;
 	}
 
+	/**
+	 * Updates the meta info of the containers from the server in as few requests as possible (e.g. a batch request, or
+	 * one listing of their common parent), instead of one per container. It's called by the factory when creating
+	 * containers in bulk.<br />
+	 * CSPs that can fetch the info of many objects at once should override this; the default batches nothing, so the
+	 * factory updates each container on its own.
+	 *
+	 * @param containers
+	 *            the containers, with their source objects set
+	 * @return the containers that weren't updated, to be updated one by one
+	 * @throws OperationException
+	 *             the batch failed as a whole; all the containers will be updated one by one
+	 */
+	public Collection<? extends Container<?>> updateContainersFromSource(Collection<? extends Container<?>> containers)
+			throws OperationException
+	{
+		return containers;
+	}
+
 	/**
 	 * Returns the factory as an abstract one -- can't predict its type from here.
 	 *
@@ -931,6 +1027,40 @@ public abstract class CSP<SourceFileType, DownloaderType, UploaderType>
 	public void setRemoteFileTree(RemoteFolder<?> value)
 	{
 		remoteFileTree = value;
+		fullRemoteTreeLoaded = false;
+		pathIndex.clear();
+		idIndex.clear();
+		nameIndex.clear();
+	}
+
+	/**
+	 * Gets the path index of the remote file tree.
+	 *
+	 * @return the path index
+	 */
+	public PathIndex getPathIndex()
+	{
+		return pathIndex;
+	}
+
+	/**
+	 * Gets the ID index of the remote file tree.
+	 *
+	 * @return the ID index
+	 */
+	public Map<String, Container<?>> getIdIndex()
+	{
+		return idIndex;
+	}
+
+	/**
+	 * Gets the name index of the remote file tree.
+	 *
+	 * @return the name index
+	 */
+	public NameIndex getNameIndex()
+	{
+		return nameIndex;
 	}
 
 	/**
@@ -996,6 +1126,27 @@ public abstract class CSP<SourceFileType, DownloaderType, UploaderType>
 		this.remoteFreeSpace = remoteFreeSpace;
 	}
 
+	/**
+	 * Gets the mapping index.
+	 *
+	 * @return the mappingIndex; null if not set
+	 */
+	public MappingIndex getMappingIndex()
+	{
+		return mappingIndex;
+	}
+
+	/**
+	 * Sets the mapping index, to record the files transferred successfully in it.
+	 *
+	 * @param mappingIndex
+	 *            the mappingIndex to set
+	 */
+	public void setMappingIndex(MappingIndex mappingIndex)
+	{
+		this.mappingIndex = mappingIndex;
+	}
+
 	// ======================================================================================
 	// #endregion Getters and setters.
 	// //////////////////////////////////////////////////////////////////////////////////////
@@ -34,6 +34,19 @@ import com.yagasoft.overcast.exception.TransferException;
 public class LocalCSP extends CSP<Path, Object, Object>
 {
 	
+	/** Shared instance, used by all local containers. */
+	private static final LocalCSP	instance	= new LocalCSP();
+	
+	/**
+	 * Gets the shared instance, used by all local containers.
+	 *
+	 * @return the local CSP
+	 */
+	public static LocalCSP getInstance()
+	{
+		return instance;
+	}
+	
 	/**
 	 * Instantiates a new local csp.
 	 */
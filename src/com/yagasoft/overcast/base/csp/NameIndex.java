@@ -0,0 +1,423 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.csp/NameIndex.java
+ *
+ *			Modified: 20-Oct-2026 (07:31:02)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.csp;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.yagasoft.overcast.base.container.Container;
+import com.yagasoft.overcast.base.container.Folder;
+
+
+/**
+ * A CSP-wide index of the names in the remote file tree, for partial (substring) name searches.<br />
+ * Names are case-folded and split into trigrams; each trigram maps to the containers having it in their name.
+ * A search picks the rarest trigram of the query, and only checks the containers in its list.<br />
+ * <br />
+ * It's maintained by {@link Folder} when children are added, removed, or renamed: a removed container is dropped from
+ * the lists of its grams along with its loaded sub-tree, and a renamed one is moved to the lists of its new grams.
+ * A list left empty is dropped with its gram.
+ */
+public class NameIndex
+{
+	
+	/** Length of the grams. Queries shorter than this can't use the index. */
+	public static final int					GRAM_LENGTH	= 3;
+	
+	/** Lists of containers mapped by trigram. */
+	protected final Map<String, Posting>	grams		= new ConcurrentHashMap<String, Posting>();
+	
+	/** The CSP owning this index. */
+	protected final CSP<?, ?, ?>			csp;
+	
+	/**
+	 * Instantiates a new name index.
+	 *
+	 * @param csp
+	 *            the CSP owning this index
+	 */
+	public NameIndex(CSP<?, ?, ?> csp)
+	{
+		this.csp = csp;
+	}
+	
+	/**
+	 * Adds the container to the index under its current name. Nothing is done if it's already indexed under this name;
+	 * if it's indexed under another name (renamed), it's removed from the lists of the grams it no longer has.
+	 *
+	 * @param container
+	 *            the container
+	 */
+	public void add(Container<?> container)
+	{
+		if (container.getName() == null)
+		{
+			return;
+		}
+		
+		String folded = Container.foldName(container.getName());
+		String oldName = container.getIndexedName();
+		
+		if (folded.equals(oldName))
+		{
+			return;
+		}
+		
+		container.setIndexedName(folded);
+		
+		List<String> newGrams = gramsOf(folded);
+		
+		if (oldName != null)
+		{
+			for (String gram : gramsOf(oldName))
+			{
+				if ( !newGrams.contains(gram))
+				{
+					removeFrom(gram, container);
+				}
+			}
+		}
+		
+		// added while holding the gram, so a list being dropped as empty concurrently isn't added to.
+		for (String gram : newGrams)
+		{
+			grams.compute(gram, (key, posting) ->
+			{
+				Posting result = (posting == null) ? new Posting(key) : posting;
+				result.add(container);
+				return result;
+			});
+		}
+	}
+	
+	/**
+	 * Adds the container and its loaded sub-tree to the index.
+	 *
+	 * @param container
+	 *            the container
+	 */
+	public void addTree(Container<?> container)
+	{
+		add(container);
+		
+		if (container.isFolder())
+		{
+			for (Container<?> child : ((Folder<?>) container).getChildrenList())
+			{
+				addTree(child);
+			}
+		}
+	}
+	
+	/**
+	 * Removes the container from the index, and resets the name it's indexed under.
+	 *
+	 * @param container
+	 *            the container
+	 */
+	public void remove(Container<?> container)
+	{
+		String oldName = container.getIndexedName();
+		
+		if (oldName == null)
+		{
+			return;
+		}
+		
+		container.setIndexedName(null);
+		
+		for (String gram : gramsOf(oldName))
+		{
+			removeFrom(gram, container);
+		}
+	}
+	
+	/**
+	 * Removes the container and its loaded sub-tree from the index.
+	 *
+	 * @param container
+	 *            the container
+	 */
+	public void removeTree(Container<?> container)
+	{
+		remove(container);
+		
+		if (container.isFolder())
+		{
+			for (Container<?> child : ((Folder<?>) container).getChildrenList())
+			{
+				removeTree(child);
+			}
+		}
+	}
+	
+	/**
+	 * Searches for containers with names containing the string passed.<br />
+	 * Results are ranked: exact matches first, then names starting with the string, then names having it at the start
+	 * of a word, then the rest; shorter names first within each rank.
+	 *
+	 * @param name
+	 *            the string to look for in the names; must be at least {@link #GRAM_LENGTH} long
+	 * @param scope
+	 *            limit the search to the sub-tree of this folder; null to search the whole tree
+	 * @param limit
+	 *            maximum number of results
+	 * @return the containers found, ranked, or null if the string is too short to use the index
+	 */
+	public List<Container<?>> search(String name, Folder<?> scope, int limit)
+	{
+		String query = Container.foldName(name);
+		
+		if (query.length() < GRAM_LENGTH)
+		{
+			return null;
+		}
+		
+		// the rarest gram has the fewest candidates to check.
+		Posting rarest = null;
+		
+		for (String gram : gramsOf(query))
+		{
+			Posting posting = grams.get(gram);
+			
+			if (posting == null)
+			{
+				return new ArrayList<Container<?>>();
+			}
+			
+			if ((rarest == null) || (posting.size() < rarest.size()))
+			{
+				rarest = posting;
+			}
+		}
+		
+		Comparator<Ranked> order = Comparator.comparingInt((Ranked ranked) -> ranked.rank)
+				.thenComparingInt(ranked -> ranked.name.length())
+				.thenComparing(ranked -> ranked.name);
+		
+		// keep the best 'limit' results, with the worst at the head to be replaced.
+		PriorityQueue<Ranked> best = new PriorityQueue<Ranked>(Math.min(Math.max(limit, 1), 1024), order.reversed());
+		
+		for (Container<?> container : rarest.snapshot())
+		{
+			String indexedName = container.getIndexedName();
+			
+			// being removed or renamed concurrently, or dropped out of the tree without passing by its parent.
+			if ((indexedName == null) || !indexedName.contains(rarest.gram) || !isAttached(container))
+			{
+				continue;
+			}
+			
+			if ( !indexedName.contains(query) || !isInScope(container, scope))
+			{
+				continue;
+			}
+			
+			best.add(new Ranked(container, indexedName, rank(indexedName, query)));
+			
+			if (best.size() > limit)
+			{
+				best.poll();
+			}
+		}
+		
+		List<Container<?>> result = new ArrayList<Container<?>>(best.size());
+		
+		while ( !best.isEmpty())
+		{
+			result.add(best.poll().container);
+		}
+		
+		Collections.reverse(result);
+		
+		return result;
+	}
+	
+	/**
+	 * Clears the index, and resets the names the containers are indexed under, so they are indexed again when added.
+	 */
+	public void clear()
+	{
+		for (Posting posting : grams.values())
+		{
+			for (Container<?> container : posting.snapshot())
+			{
+				container.setIndexedName(null);
+			}
+		}
+		
+		grams.clear();
+	}
+	
+	/**
+	 * Removes the container from the list of the gram, and drops the gram if its list is left empty.
+	 */
+	private void removeFrom(String gram, Container<?> container)
+	{
+		grams.computeIfPresent(gram, (key, posting) ->
+		{
+			posting.remove(container);
+			return (posting.size() == 0) ? null : posting;
+		});
+	}
+	
+	/**
+	 * Checks if the container is still in the tree of the CSP.
+	 */
+	protected boolean isAttached(Container<?> container)
+	{
+		Folder<?> top = container.getParent();
+		
+		if (top == null)
+		{
+			return false;
+		}
+		
+		while (top.getParent() != null)
+		{
+			top = top.getParent();
+		}
+		
+		return top == csp.getRemoteFileTree();
+	}
+	
+	private static boolean isInScope(Container<?> container, Folder<?> scope)
+	{
+		if (scope == null)
+		{
+			return true;
+		}
+		
+		for (Folder<?> folder = container.getParent(); folder != null; folder = folder.getParent())
+		{
+			if (folder == scope)
+			{
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	private static int rank(String name, String query)
+	{
+		if (name.equals(query))
+		{
+			return 0;
+		}
+		
+		if (name.startsWith(query))
+		{
+			return 1;
+		}
+		
+		// at the start of a word.
+		for (int index = name.indexOf(query); index > 0; index = name.indexOf(query, index + 1))
+		{
+			if ( !Character.isLetterOrDigit(name.charAt(index - 1)))
+			{
+				return 2;
+			}
+		}
+		
+		return 3;
+	}
+	
+	/**
+	 * Gets the distinct grams of the name. A name shorter than a gram is a gram of its own.
+	 */
+	private static List<String> gramsOf(String name)
+	{
+		List<String> result = new ArrayList<String>();
+		
+		if (name.length() <= GRAM_LENGTH)
+		{
+			result.add(name);
+			return result;
+		}
+		
+		for (int i = 0; i <= (name.length() - GRAM_LENGTH); i++)
+		{
+			String gram = name.substring(i, i + GRAM_LENGTH);
+			
+			if ( !result.contains(gram))
+			{
+				result.add(gram);
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * A container ranked in a search result.
+	 */
+	private static final class Ranked
+	{
+		
+		final Container<?>	container;
+		final String		name;
+		final int			rank;
+		
+		Ranked(Container<?> container, String name, int rank)
+		{
+			this.container = container;
+			this.name = name;
+			this.rank = rank;
+		}
+	}
+	
+	/**
+	 * The set of containers having a gram in their name (by identity).
+	 */
+	protected static final class Posting
+	{
+		
+		private final String			gram;
+		private final Set<Container<?>>	items	= Collections.newSetFromMap(new IdentityHashMap<Container<?>, Boolean>());
+		
+		protected Posting(String gram)
+		{
+			this.gram = gram;
+		}
+		
+		protected synchronized void add(Container<?> container)
+		{
+			items.add(container);
+		}
+		
+		protected synchronized void remove(Container<?> container)
+		{
+			items.remove(container);
+		}
+		
+		protected synchronized int size()
+		{
+			return items.size();
+		}
+		
+		protected synchronized Container<?>[] snapshot()
+		{
+			return items.toArray(new Container<?>[items.size()]);
+		}
+	}
+	
+}
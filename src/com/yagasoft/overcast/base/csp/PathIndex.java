@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.csp/PathIndex.java
+ *
+ *			Modified: 19-Oct-2026 (14:22:08)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.csp;
+
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.yagasoft.overcast.base.container.Container;
+import com.yagasoft.overcast.base.container.File;
+import com.yagasoft.overcast.base.container.Folder;
+
+
+/**
+ * A CSP-wide index of the remote file tree by path; a trie keyed by the case-folded path nodes (segments).<br />
+ * Each folder node keeps its sub-folders' nodes and its files, so resolving a path costs O(path length)
+ * in memory, with no listing calls. Moving or renaming a folder moves its node, so it's O(1) regardless of the sub-tree size.<br />
+ * <br />
+ * It's maintained by {@link Folder} when children are added, removed, or renamed. Reads are not blocked.
+ */
+public class PathIndex
+{
+	
+	/** Root node, mapped to the remote file tree root of the CSP. Replaced when the index is cleared. */
+	protected volatile Node			root	= new Node(null);
+	
+	/** The CSP owning this index. */
+	protected final CSP<?, ?, ?>	csp;
+	
+	/**
+	 * Instantiates a new path index.
+	 *
+	 * @param csp
+	 *            the CSP owning this index
+	 */
+	public PathIndex(CSP<?, ?, ?> csp)
+	{
+		this.csp = csp;
+	}
+	
+	/**
+	 * Adds the child to the index under its parent.
+	 *
+	 * @param parent
+	 *            the parent
+	 * @param child
+	 *            the child
+	 */
+	public void add(Folder<?> parent, Container<?> child)
+	{
+		Node parentNode = nodeOf(parent);
+		
+		if ((parentNode == null) || (child.getName() == null))
+		{
+			return;
+		}
+		
+		String key = Container.foldName(child.getName());
+		
+		if (child.isFolder())
+		{
+			Folder<?> folder = (Folder<?>) child;
+			Node node = ownNode(folder);
+			
+			// a folder that was moved keeps its node, and so its sub-tree.
+			if (node == null)
+			{
+				node = new Node(parentNode.root);
+				node.folder = folder;
+				folder.setPathNode(node);
+			}
+			
+			parentNode.folders().put(key, node);
+		}
+		else
+		{
+			parentNode.files().put(key, (File<?>) child);
+		}
+	}
+	
+	/**
+	 * Removes the child from the index. A folder keeps its node detached, so it can be re-attached if it's added elsewhere (moved).
+	 *
+	 * @param parent
+	 *            the parent
+	 * @param child
+	 *            the child
+	 */
+	public void remove(Folder<?> parent, Container<?> child)
+	{
+		remove(parent, child, child.getName());
+	}
+	
+	/**
+	 * Updates the key of the child after a rename.
+	 *
+	 * @param parent
+	 *            the parent
+	 * @param child
+	 *            the child
+	 * @param oldName
+	 *            the old name
+	 */
+	public void rename(Folder<?> parent, Container<?> child, String oldName)
+	{
+		remove(parent, child, oldName);
+		add(parent, child);
+	}
+	
+	/**
+	 * Resolves the path passed to a container, using the index only.
+	 *
+	 * @param path
+	 *            the path, in the standard API format
+	 * @return the container, or null if it's not in the index
+	 */
+	public Container<?> resolve(String path)
+	{
+		Node root = this.root;
+		Node node = root;
+		int length = path.length();
+		int start = 0;
+		
+		// skip the leading separators.
+		while ((start < length) && (path.charAt(start) == '/'))
+		{
+			start++;
+		}
+		
+		if (start == length)
+		{
+			return root.folder;
+		}
+		
+		while (node != null)
+		{
+			int end = path.indexOf('/', start);
+			
+			// the last node in the path; it might be a folder or a file.
+			if ((end < 0) || (end == (length - 1)))
+			{
+				String key = Container.foldName(path.substring(start, (end < 0) ? length : end));
+				Node folderNode = node.getFolder(key);
+				
+				if ((folderNode != null) && (folderNode.folder != null))
+				{
+					return folderNode.folder;
+				}
+				
+				return (end < 0) ? node.getFile(key) : null;
+			}
+			
+			node = node.getFolder(Container.foldName(path.substring(start, end)));
+			start = end + 1;
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Clears the index. Nodes held by the folders of the old tree are ignored from then on.
+	 */
+	public void clear()
+	{
+		root = new Node(null);
+	}
+	
+	private void remove(Folder<?> parent, Container<?> child, String name)
+	{
+		Node parentNode = ownNode(parent);
+		
+		if ((parentNode == null) || (name == null))
+		{
+			return;
+		}
+		
+		String key = Container.foldName(name);
+		
+		if (child.isFolder())
+		{
+			Node node = ownNode((Folder<?>) child);
+			
+			if ((node != null) && (parentNode.folders != null))
+			{
+				parentNode.folders.remove(key, node);
+			}
+		}
+		else if (parentNode.files != null)
+		{
+			parentNode.files.remove(key, child);
+		}
+	}
+	
+	/**
+	 * Gets the node of the folder, indexing the folder on the way if needed.
+	 *
+	 * @return the node, or null if the folder is not in the remote file tree of the CSP
+	 */
+	private Node nodeOf(Folder<?> folder)
+	{
+		Node node = ownNode(folder);
+		
+		if (node != null)
+		{
+			return node;
+		}
+		
+		Folder<?> parent = folder.getParent();
+		
+		// a root; only the CSP's remote root is indexed.
+		if (parent == null)
+		{
+			if (folder != csp.getRemoteFileTree())
+			{
+				return null;
+			}
+			
+			synchronized (this)
+			{
+				if ((root.folder != null) && (root.folder != folder))
+				{
+					clear();
+				}
+				
+				root.folder = folder;
+				folder.setPathNode(root);
+				
+				return root;
+			}
+		}
+		
+		// a folder that was attached before the index knew about it.
+		add(parent, folder);
+		
+		return ownNode(folder);
+	}
+	
+	/**
+	 * Gets the node of the folder if it belongs to this index.
+	 */
+	private Node ownNode(Folder<?> folder)
+	{
+		Node node = folder.getPathNode();
+		
+		return ((node != null) && (node.root == root)) ? node : null;
+	}
+	
+	/**
+	 * A folder node in the index.
+	 */
+	public static final class Node
+	{
+		
+		/** The root of the index generation this node belongs to. */
+		protected final Node					root;
+		
+		/** The folder. */
+		protected volatile Folder<?>			folder;
+		
+		/** Sub-folders' nodes mapped by case-folded name. */
+		protected volatile Map<String, Node>	folders;
+		
+		/** Files mapped by case-folded name. */
+		protected volatile Map<String, File<?>>	files;
+		
+		protected Node(Node root)
+		{
+			this.root = (root == null) ? this : root;
+		}
+		
+		protected Node getFolder(String key)
+		{
+			Map<String, Node> folders = this.folders;
+			return (folders == null) ? null : folders.get(key);
+		}
+		
+		protected File<?> getFile(String key)
+		{
+			Map<String, File<?>> files = this.files;
+			return (files == null) ? null : files.get(key);
+		}
+		
+		protected Map<String, Node> folders()
+		{
+			if (folders == null)
+			{
+				synchronized (this)
+				{
+					if (folders == null)
+					{
+						folders = new ConcurrentHashMap<String, Node>();
+					}
+				}
+			}
+			
+			return folders;
+		}
+		
+		protected Map<String, File<?>> files()
+		{
+			if (files == null)
+			{
+				synchronized (this)
+				{
+					if (files == null)
+					{
+						files = new ConcurrentHashMap<String, File<?>>();
+					}
+				}
+			}
+			
+			return files;
+		}
+	}
+	
+}
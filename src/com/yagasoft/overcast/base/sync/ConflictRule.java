@@ -0,0 +1,25 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.sync/ConflictRule.java
+ *
+ *			Modified: 20-Oct-2026 (00:12:03)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.sync;
+
+
+/**
+ * How the {@link SyncEngine} resolves an entry changed on both sides (or a file on one side and a folder on the other).
+ */
+public enum ConflictRule
+{
+	LOCAL_WINS,
+	REMOTE_WINS,
+	NEWER_WINS,
+	SKIP
+}
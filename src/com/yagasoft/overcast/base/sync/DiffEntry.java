@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.sync/DiffEntry.java
+ *
+ *			Modified: 19-Oct-2026 (23:03:12)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.sync;
+
+
+import com.yagasoft.overcast.base.container.Container;
+
+
+/**
+ * An entry compared by {@link TreeDiff}: the local and remote containers with the same name at the same place in both
+ * trees, and their state. One of them is null if it exists on one side only.
+ */
+public class DiffEntry
+{
+	
+	/** Path relative to the roots compared, with '/' separating the names; empty for the roots. */
+	protected final String			path;
+	
+	/** The local container; null if remote only. */
+	protected final Container<?>	local;
+	
+	/** The remote container; null if local only. */
+	protected final Container<?>	remote;
+	
+	/** The state. */
+	protected final DiffState		state;
+	
+	/**
+	 * Instantiates a new diff entry.
+	 *
+	 * @param path
+	 *            the relative path
+	 * @param local
+	 *            the local container
+	 * @param remote
+	 *            the remote container
+	 * @param state
+	 *            the state
+	 */
+	public DiffEntry(String path, Container<?> local, Container<?> remote, DiffState state)
+	{
+		this.path = path;
+		this.local = local;
+		this.remote = remote;
+		this.state = state;
+	}
+	
+	/**
+	 * Checks if the entry is a folder (on the side it exists on, or locally if on both).
+	 *
+	 * @return true, if folder
+	 */
+	public boolean isFolder()
+	{
+		return (local != null) ? local.isFolder() : remote.isFolder();
+	}
+	
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		return state + ": " + path;
+	}
+	
+	// //////////////////////////////////////////////////////////////////////////////////////
+	// #region Getters.
+	// ======================================================================================
+	
+	/**
+	 * @return the path
+	 */
+	public String getPath()
+	{
+		return path;
+	}
+	
+	/**
+	 * @return the local
+	 */
+	public Container<?> getLocal()
+	{
+		return local;
+	}
+	
+	/**
+	 * @return the remote
+	 */
+	public Container<?> getRemote()
+	{
+		return remote;
+	}
+	
+	/**
+	 * @return the state
+	 */
+	public DiffState getState()
+	{
+		return state;
+	}
+	
+	// ======================================================================================
+	// #endregion Getters.
+	// //////////////////////////////////////////////////////////////////////////////////////
+	
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.sync/DiffState.java
+ *
+ *			Modified: 19-Oct-2026 (23:02:17)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.sync;
+
+
+/**
+ * States of an entry compared by {@link TreeDiff}.
+ */
+public enum DiffState
+{
+	ONLY_LOCAL,
+	ONLY_REMOTE,
+	SAME,
+	CHANGED
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.sync/IDiffListener.java
+ *
+ *			Modified: 19-Oct-2026 (23:02:41)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.sync;
+
+
+/**
+ * The listener interface for receiving the entries compared by a {@link TreeDiff} as soon as they're classified.<br />
+ * Sub-trees are compared in parallel, so it might be invoked from several threads at the same time.
+ */
+@FunctionalInterface
+public interface IDiffListener
+{
+	
+	/**
+	 * An entry was compared.
+	 *
+	 * @param entry
+	 *            the entry, with its state.
+	 */
+	public void entryCompared(DiffEntry entry);
+	
+}
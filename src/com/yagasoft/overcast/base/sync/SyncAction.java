@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.sync/SyncAction.java
+ *
+ *			Modified: 20-Oct-2026 (00:13:27)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.sync;
+
+
+import com.yagasoft.overcast.base.container.Container;
+
+
+/**
+ * An action in a {@link SyncPlan}.
+ */
+public class SyncAction
+{
+	
+	/** The type. */
+	protected final SyncActionType	type;
+	
+	/** Path relative to the roots synced, with '/' separating the names. */
+	protected final String			path;
+	
+	/** The container acted on: the one transferred, deleted or renamed, or the one that the folder created mirrors. */
+	protected final Container<?>	container;
+	
+	/** The new name if renamed. */
+	protected final String			newName;
+	
+	/** Overwrite the existing container when transferring. */
+	protected final boolean			overwrite;
+	
+	/**
+	 * Instantiates a new sync action.
+	 *
+	 * @param type
+	 *            the type
+	 * @param path
+	 *            the relative path
+	 * @param container
+	 *            the container acted on
+	 * @param newName
+	 *            the new name if renamed; null otherwise
+	 * @param overwrite
+	 *            overwrite the existing container when transferring
+	 */
+	public SyncAction(SyncActionType type, String path, Container<?> container, String newName, boolean overwrite)
+	{
+		this.type = type;
+		this.path = path;
+		this.container = container;
+		this.newName = newName;
+		this.overwrite = overwrite;
+	}
+	
+	/**
+	 * Instantiates a new sync action.
+	 *
+	 * @param type
+	 *            the type
+	 * @param path
+	 *            the relative path
+	 * @param container
+	 *            the container acted on
+	 */
+	public SyncAction(SyncActionType type, String path, Container<?> container)
+	{
+		this(type, path, container, null, false);
+	}
+	
+	/**
+	 * Gets the relative path of the parent folder; empty if the parent is the root.
+	 *
+	 * @return the parent path
+	 */
+	public String getParentPath()
+	{
+		int index = path.lastIndexOf('/');
+		return (index < 0) ? "" : path.substring(0, index);
+	}
+	
+	/**
+	 * Gets the number of folders above the entry, to create parents before children.
+	 *
+	 * @return the depth
+	 */
+	public int getDepth()
+	{
+		int depth = 0;
+		
+		for (int index = path.indexOf('/'); index >= 0; index = path.indexOf('/', index + 1))
+		{
+			depth++;
+		}
+		
+		return depth;
+	}
+	
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		return type + ": " + path + ((newName == null) ? "" : (" -> " + newName)) + (overwrite ? " (overwrite)" : "");
+	}
+	
+	// //////////////////////////////////////////////////////////////////////////////////////
+	// #region Getters.
+	// ======================================================================================
+	
+	/**
+	 * @return the type
+	 */
+	public SyncActionType getType()
+	{
+		return type;
+	}
+	
+	/**
+	 * @return the path
+	 */
+	public String getPath()
+	{
+		return path;
+	}
+	
+	/**
+	 * @return the container
+	 */
+	public Container<?> getContainer()
+	{
+		return container;
+	}
+	
+	/**
+	 * @return the newName
+	 */
+	public String getNewName()
+	{
+		return newName;
+	}
+	
+	/**
+	 * @return the overwrite
+	 */
+	public boolean isOverwrite()
+	{
+		return overwrite;
+	}
+	
+	// ======================================================================================
+	// #endregion Getters.
+	// //////////////////////////////////////////////////////////////////////////////////////
+	
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.sync/SyncActionType.java
+ *
+ *			Modified: 20-Oct-2026 (00:11:36)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.sync;
+
+
+/**
+ * Types of the actions in a {@link SyncPlan}, in the order they're executed: deletes make room for what replaces them,
+ * and folders are created before anything is transferred into them.
+ */
+public enum SyncActionType
+{
+	DELETE_LOCAL,
+	DELETE_REMOTE,
+	RENAME_LOCAL,
+	RENAME_REMOTE,
+	CREATE_LOCAL,
+	CREATE_REMOTE,
+	UPLOAD,
+	DOWNLOAD,
+	SKIP
+}
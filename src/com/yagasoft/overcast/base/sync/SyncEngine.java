@@ -0,0 +1,688 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.sync/SyncEngine.java
+ *
+ *			Modified: 20-Oct-2026 (06:48:12)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.sync;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+
+import com.yagasoft.logger.Logger;
+import com.yagasoft.overcast.base.cache.MappingIndex;
+import com.yagasoft.overcast.base.cache.MappingIndex.Mapping;
+import com.yagasoft.overcast.base.container.Container;
+import com.yagasoft.overcast.base.container.File;
+import com.yagasoft.overcast.base.container.Folder;
+import com.yagasoft.overcast.base.container.local.LocalFile;
+import com.yagasoft.overcast.base.container.local.LocalFolder;
+import com.yagasoft.overcast.base.container.remote.RemoteFile;
+import com.yagasoft.overcast.base.container.remote.RemoteFolder;
+import com.yagasoft.overcast.base.container.transfer.TransferJob;
+import com.yagasoft.overcast.base.container.transfer.event.ITransferProgressListener;
+import com.yagasoft.overcast.exception.OperationException;
+
+
+/**
+ * Syncs a local tree with a remote one in both directions. It compares them using {@link TreeDiff}, and plans the
+ * actions needed ({@link SyncPlan}):
+ * <ul>
+ * <li>an entry on one side only is created on the other (folders with all their content), unless it's in the baseline,
+ * which means it was synced before, and then deleted from the other side; so it's deleted from this side as well,
+ * unless the {@link MappingIndex} shows it changed since it was synced, which is resolved using the {@link ConflictRule}
+ * (an edit is kept on {@link ConflictRule#NEWER_WINS}, as a deletion has no date),</li>
+ * <li>a file deleted from one side, and a new file in the same folder on the other side that has the same content (size,
+ * and the hash or the date), is a rename,</li>
+ * <li>a changed file is pushed or pulled if the {@link MappingIndex} shows it changed on one side only since it was last
+ * synced,</li>
+ * <li>a file changed on both sides (or without a mapping to tell which side), or a file on one side and a folder on the
+ * other, is resolved using the {@link ConflictRule}.</li>
+ * </ul>
+ * The baseline is the set of paths synced last time ({@link SyncPlan#getSyncedPaths()}); without it, nothing is deleted.
+ */
+public class SyncEngine
+{
+	
+	/** Local root. */
+	protected final LocalFolder							local;
+	
+	/** Remote root. */
+	protected final RemoteFolder<?>						remote;
+	
+	/** How to resolve conflicts. */
+	protected ConflictRule								conflictRule	= ConflictRule.NEWER_WINS;
+	
+	/** Folded relative paths synced last time. */
+	protected Set<String>								baseline		= Collections.emptySet();
+	
+	/** Compares the content of files with the same size; null to compare the dates instead. */
+	protected BiPredicate<LocalFile, RemoteFile<?>>	hashComparator;
+	
+	/** Maximum difference (ms) between dates considered the same. */
+	protected long										dateTolerance	= 2000;
+	
+	/** Files recorded as in sync before, to skip comparing them and tell which side changed; null to compare all. */
+	protected MappingIndex								mappingIndex;
+	
+	/** Number of folders compared at the same time. */
+	protected int										parallelism		= 8;
+	
+	/**
+	 * Instantiates a new sync engine.
+	 *
+	 * @param local
+	 *            the local root
+	 * @param remote
+	 *            the remote root
+	 */
+	public SyncEngine(LocalFolder local, RemoteFolder<?> remote)
+	{
+		this.local = local;
+		this.remote = remote;
+	}
+	
+	/**
+	 * Plans the sync, and executes the plan.
+	 *
+	 * @param listener
+	 *            listens to the transfers queued.
+	 * @return the plan executed
+	 * @throws OperationException
+	 *             the trees couldn't be compared, or some actions failed
+	 */
+	public SyncPlan sync(ITransferProgressListener listener) throws OperationException
+	{
+		SyncPlan plan = plan();
+		plan.execute(listener);
+		return plan;
+	}
+	
+	/**
+	 * Compares the trees and plans the actions, without changing anything.
+	 *
+	 * @return the plan
+	 * @throws OperationException
+	 *             the trees couldn't be compared
+	 */
+	public SyncPlan plan() throws OperationException
+	{
+		Logger.info("OVERCAST: SYNC: planning: " + local.getPath() + ", with: " + remote.getPath());
+		
+		TreeDiff diff = new TreeDiff(local, remote);
+		diff.setHashComparator(hashComparator);
+		diff.setDateTolerance(dateTolerance);
+		diff.setMappingIndex(mappingIndex);
+		diff.setParallelism(parallelism);
+		
+		SyncPlan plan = new SyncPlan(local, remote);
+		Map<String, DiffEntry> onlyLocal = new LinkedHashMap<String, DiffEntry>();
+		Map<String, DiffEntry> onlyRemote = new LinkedHashMap<String, DiffEntry>();
+		
+		for (DiffEntry entry : diff.compare())
+		{
+			switch (entry.getState())
+			{
+				case ONLY_LOCAL:
+					onlyLocal.put(Container.foldName(entry.getPath()), entry);
+					break;
+				
+				case ONLY_REMOTE:
+					onlyRemote.put(Container.foldName(entry.getPath()), entry);
+					break;
+				
+				case SAME:
+				case CHANGED:
+					plan.addSynced(entry.getPath());
+					
+					if (entry.isFolder())
+					{
+						plan.mapFolders(entry.getPath(), (LocalFolder) entry.getLocal(), (RemoteFolder<?>) entry.getRemote());
+					}
+					else if (entry.getState() == DiffState.CHANGED)
+					{
+						planChange(plan, entry);
+					}
+					
+					break;
+			}
+		}
+		
+		planClashes(plan, onlyLocal, onlyRemote);
+		planRenames(plan, onlyLocal, onlyRemote);
+		planRenames(plan, onlyRemote, onlyLocal);
+		
+		for (DiffEntry entry : onlyLocal.values())
+		{
+			if (baseline.contains(Container.foldName(entry.getPath())))
+			{
+				planDeletion(plan, entry.getPath(), entry.getLocal());
+			}
+			else
+			{
+				push(plan, entry.getPath(), entry.getLocal(), false);
+			}
+		}
+		
+		for (DiffEntry entry : onlyRemote.values())
+		{
+			if (baseline.contains(Container.foldName(entry.getPath())))
+			{
+				planDeletion(plan, entry.getPath(), entry.getRemote());
+			}
+			else
+			{
+				pull(plan, entry.getPath(), entry.getRemote(), false);
+			}
+		}
+		
+		plan.sort();
+		
+		Logger.info("OVERCAST: SYNC: planned: " + plan.getActions().size() + " actions");
+		
+		return plan;
+	}
+	
+	/**
+	 * A file that exists on both sides with different content is copied over from the side it changed on since its mapping
+	 * was recorded. If both sides changed, or there's no mapping to tell, it's resolved as a conflict.
+	 */
+	protected void planChange(SyncPlan plan, DiffEntry entry)
+	{
+		LocalFile localFile = (LocalFile) entry.getLocal();
+		RemoteFile<?> remoteFile = (RemoteFile<?>) entry.getRemote();
+		Mapping mapping = (mappingIndex == null) ? null : mappingIndex.getByRemoteId(remoteFile.getId());
+		
+		if ((mapping != null) && mapping.getLocalPath().equals(localFile.getSourceObject().toAbsolutePath().toString()))
+		{
+			boolean localChanged = !MappingIndex.isUnchanged(mapping, localFile);
+			boolean remoteChanged = !MappingIndex.isUnchanged(mapping, remoteFile);
+			
+			if (localChanged && !remoteChanged)
+			{
+				push(plan, entry.getPath(), localFile, true);
+				return;
+			}
+			
+			if (remoteChanged && !localChanged)
+			{
+				pull(plan, entry.getPath(), remoteFile, true);
+				return;
+			}
+		}
+		
+		resolve(plan, entry, entry);
+	}
+	
+	/**
+	 * An entry synced before, and then deleted from the other side, is deleted from the side it survived on, unless it
+	 * changed there since (see {@link #isChangedSinceSync(Container)}); then, it's kept (copied back to the other side)
+	 * or deleted as the conflict rule says.
+	 */
+	protected void planDeletion(SyncPlan plan, String path, Container<?> survivor)
+	{
+		boolean local = survivor.isLocal();
+		SyncActionType delete = local ? SyncActionType.DELETE_LOCAL : SyncActionType.DELETE_REMOTE;
+		
+		if ( !isChangedSinceSync(survivor))
+		{
+			plan.add(new SyncAction(delete, path, survivor));
+			return;
+		}
+		
+		Logger.info("OVERCAST: SYNC: changed after it was deleted on the other side: " + path);
+		
+		switch (conflictRule)
+		{
+			case SKIP:
+				plan.add(new SyncAction(SyncActionType.SKIP, path, survivor));
+				break;
+			
+			case NEWER_WINS:
+			case LOCAL_WINS:
+			case REMOTE_WINS:
+				// the deletion has no date, so the edit counts as newer.
+				boolean keep = (conflictRule == ConflictRule.NEWER_WINS)
+						|| (conflictRule == (local ? ConflictRule.LOCAL_WINS : ConflictRule.REMOTE_WINS));
+				
+				if ( !keep)
+				{
+					plan.add(new SyncAction(delete, path, survivor));
+				}
+				else if (local)
+				{
+					push(plan, path, survivor, false);
+				}
+				else
+				{
+					pull(plan, path, survivor, false);
+				}
+				
+				break;
+		}
+	}
+	
+	/**
+	 * Checks if the container (or a file in its sub-tree) changed since its mapping was recorded. Without a mapping
+	 * index, or a mapping for a file, there's nothing to compare with, so it counts as unchanged.
+	 */
+	protected boolean isChangedSinceSync(Container<?> container)
+	{
+		if (mappingIndex == null)
+		{
+			return false;
+		}
+		
+		if (container.isFolder())
+		{
+			for (Container<?> child : children((Folder<?>) container))
+			{
+				if (isChangedSinceSync(child))
+				{
+					return true;
+				}
+			}
+			
+			return false;
+		}
+		
+		if (container.isLocal())
+		{
+			LocalFile localFile = (LocalFile) container;
+			Mapping mapping = mappingIndex.getByLocalPath(localFile.getSourceObject());
+			return (mapping != null) && !MappingIndex.isUnchanged(mapping, localFile);
+		}
+		
+		RemoteFile<?> remoteFile = (RemoteFile<?>) container;
+		Mapping mapping = mappingIndex.getByRemoteId(remoteFile.getId());
+		return (mapping != null) && !MappingIndex.isUnchanged(mapping, remoteFile);
+	}
+	
+	/**
+	 * A file on one side and a folder on the other with the same name are resolved as a conflict.
+	 */
+	protected void planClashes(SyncPlan plan, Map<String, DiffEntry> onlyLocal, Map<String, DiffEntry> onlyRemote)
+	{
+		Iterator<Map.Entry<String, DiffEntry>> iterator = onlyLocal.entrySet().iterator();
+		
+		while (iterator.hasNext())
+		{
+			Map.Entry<String, DiffEntry> entry = iterator.next();
+			DiffEntry remoteEntry = onlyRemote.remove(entry.getKey());
+			
+			if (remoteEntry != null)
+			{
+				iterator.remove();
+				resolve(plan, entry.getValue(), remoteEntry);
+			}
+		}
+	}
+	
+	/**
+	 * Resolves a conflict between the local entry and the remote entry passed (might be the same entry if it exists on
+	 * both sides).
+	 */
+	protected void resolve(SyncPlan plan, DiffEntry localEntry, DiffEntry remoteEntry)
+	{
+		Container<?> localContainer = localEntry.getLocal();
+		Container<?> remoteContainer = remoteEntry.getRemote();
+		boolean clash = localEntry != remoteEntry;
+		ConflictRule rule = conflictRule;
+		
+		if (rule == ConflictRule.NEWER_WINS)
+		{
+			rule = (localContainer.getDate() >= remoteContainer.getDate()) ? ConflictRule.LOCAL_WINS : ConflictRule.REMOTE_WINS;
+		}
+		
+		switch (rule)
+		{
+			case LOCAL_WINS:
+				if (clash)
+				{
+					plan.add(new SyncAction(SyncActionType.DELETE_REMOTE, remoteEntry.getPath(), remoteContainer));
+				}
+				
+				push(plan, localEntry.getPath(), localContainer, !clash);
+				break;
+			
+			case REMOTE_WINS:
+				if (clash)
+				{
+					plan.add(new SyncAction(SyncActionType.DELETE_LOCAL, localEntry.getPath(), localContainer));
+				}
+				
+				pull(plan, remoteEntry.getPath(), remoteContainer, !clash);
+				break;
+			
+			default:
+				plan.add(new SyncAction(SyncActionType.SKIP, localEntry.getPath(), localContainer));
+				break;
+		}
+	}
+	
+	/**
+	 * Matches files deleted from one side with new files in the same folder on the other side that have the same
+	 * content, and plans them as renames on the side they were deleted from.
+	 *
+	 * @param plan
+	 *            the plan
+	 * @param deleted
+	 *            entries on the side the files still exist on
+	 * @param renamed
+	 *            entries on the side the files were renamed on
+	 */
+	protected void planRenames(SyncPlan plan, Map<String, DiffEntry> deleted, Map<String, DiffEntry> renamed)
+	{
+		// new files that might be renames, bucketed by folder and size, as only those can match.
+		Map<String, List<DiffEntry>> buckets = new HashMap<String, List<DiffEntry>>();
+		
+		for (DiffEntry candidate : renamed.values())
+		{
+			if ( !candidate.isFolder() && !baseline.contains(Container.foldName(candidate.getPath())))
+			{
+				buckets.computeIfAbsent(renameKey(candidate), key -> new ArrayList<DiffEntry>()).add(candidate);
+			}
+		}
+		
+		Iterator<DiffEntry> iterator = deleted.values().iterator();
+		
+		while (iterator.hasNext() && !buckets.isEmpty())
+		{
+			DiffEntry old = iterator.next();
+			
+			if (old.isFolder() || !baseline.contains(Container.foldName(old.getPath())))
+			{
+				continue;
+			}
+			
+			List<DiffEntry> bucket = buckets.get(renameKey(old));
+			
+			if (bucket == null)
+			{
+				continue;
+			}
+			
+			for (Iterator<DiffEntry> candidates = bucket.iterator(); candidates.hasNext();)
+			{
+				DiffEntry candidate = candidates.next();
+				
+				boolean local = old.getLocal() != null;
+				LocalFile localFile = (LocalFile) (local ? old.getLocal() : candidate.getLocal());
+				RemoteFile<?> remoteFile = (RemoteFile<?>) (local ? candidate.getRemote() : old.getRemote());
+				
+				if ( !isSameContent(localFile, remoteFile))
+				{
+					continue;
+				}
+				
+				Container<?> container = local ? old.getLocal() : old.getRemote();
+				String newName = local ? candidate.getRemote().getName() : candidate.getLocal().getName();
+				
+				plan.add(new SyncAction(local ? SyncActionType.RENAME_LOCAL : SyncActionType.RENAME_REMOTE
+						, old.getPath(), container, newName, false));
+				
+				iterator.remove();
+				candidates.remove();
+				renamed.remove(Container.foldName(candidate.getPath()));
+				
+				if (bucket.isEmpty())
+				{
+					buckets.remove(renameKey(old));
+				}
+				
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Gets the key of the rename bucket of the file entry: its folded parent path and its size.
+	 */
+	private static String renameKey(DiffEntry entry)
+	{
+		Container<?> container = (entry.getLocal() != null) ? entry.getLocal() : entry.getRemote();
+		return Container.foldName(parentOf(entry.getPath())) + '\0' + container.getSize();
+	}
+	
+	/**
+	 * Checks if the files have the same content: recorded as in sync and unchanged since, or using the hash comparator if
+	 * set, or the size and date.
+	 */
+	protected boolean isSameContent(LocalFile localFile, RemoteFile<?> remoteFile)
+	{
+		if (localFile.getSize() != remoteFile.getSize())
+		{
+			return false;
+		}
+		
+		if ((mappingIndex != null) && mappingIndex.isInSync(localFile, remoteFile))
+		{
+			return true;
+		}
+		
+		if (hashComparator != null)
+		{
+			return hashComparator.test(localFile, remoteFile);
+		}
+		
+		return Math.abs(localFile.getDate() - remoteFile.getDate()) <= dateTolerance;
+	}
+	
+	/**
+	 * Plans the upload of the local container passed, creating folders (recursively) as needed.
+	 */
+	protected void push(SyncPlan plan, String path, Container<?> container, boolean overwrite)
+	{
+		if ( !container.isFolder())
+		{
+			plan.add(new SyncAction(SyncActionType.UPLOAD, path, container, null, overwrite));
+			return;
+		}
+		
+		plan.add(new SyncAction(SyncActionType.CREATE_REMOTE, path, container));
+		
+		for (Container<?> child : children((Folder<?>) container))
+		{
+			push(plan, path + "/" + child.getName(), child, false);
+		}
+	}
+	
+	/**
+	 * Plans the download of the remote container passed, creating folders (recursively) as needed.
+	 */
+	protected void pull(SyncPlan plan, String path, Container<?> container, boolean overwrite)
+	{
+		if ( !container.isFolder())
+		{
+			plan.add(new SyncAction(SyncActionType.DOWNLOAD, path, container, null, overwrite));
+			return;
+		}
+		
+		plan.add(new SyncAction(SyncActionType.CREATE_LOCAL, path, container));
+		
+		for (Container<?> child : children((Folder<?>) container))
+		{
+			pull(plan, path + "/" + child.getName(), child, false);
+		}
+	}
+	
+	/**
+	 * Gets the children of the folder passed, loading them if needed.
+	 */
+	protected List<Container<?>> children(Folder<?> folder)
+	{
+		try
+		{
+			folder.loadChildren();
+		}
+		catch (OperationException e)
+		{
+			Logger.error("OVERCAST: SYNC: couldn't list, using what's in memory: " + folder.getPath());
+			Logger.except(e);
+		}
+		
+		List<Container<?>> children = new ArrayList<Container<?>>(folder.getFoldersList());
+		
+		for (File<?> file : folder.getFilesList())
+		{
+			children.add(file);
+		}
+		
+		return children;
+	}
+	
+	/**
+	 * Gets the relative path of the parent.
+	 */
+	private static String parentOf(String path)
+	{
+		int index = path.lastIndexOf('/');
+		return (index < 0) ? "" : path.substring(0, index);
+	}
+	
+	// //////////////////////////////////////////////////////////////////////////////////////
+	// #region Getters and setters.
+	// ======================================================================================
+	
+	/**
+	 * @return the local root
+	 */
+	public LocalFolder getLocal()
+	{
+		return local;
+	}
+	
+	/**
+	 * @return the remote root
+	 */
+	public RemoteFolder<?> getRemote()
+	{
+		return remote;
+	}
+	
+	/**
+	 * @return the conflictRule
+	 */
+	public ConflictRule getConflictRule()
+	{
+		return conflictRule;
+	}
+	
+	/**
+	 * @param conflictRule
+	 *            the conflictRule to set
+	 */
+	public void setConflictRule(ConflictRule conflictRule)
+	{
+		this.conflictRule = conflictRule;
+	}
+	
+	/**
+	 * @return the baseline
+	 */
+	public Set<String> getBaseline()
+	{
+		return baseline;
+	}
+	
+	/**
+	 * @param baseline
+	 *            the relative paths synced last time (see {@link SyncPlan#getSyncedPaths()}); empty to never delete
+	 */
+	public void setBaseline(Set<String> baseline)
+	{
+		Set<String> folded = new HashSet<String>();
+		baseline.forEach(path -> folded.add(Container.foldName(path)));
+		this.baseline = folded;
+	}
+	
+	/**
+	 * @return the hashComparator
+	 */
+	public BiPredicate<LocalFile, RemoteFile<?>> getHashComparator()
+	{
+		return hashComparator;
+	}
+	
+	/**
+	 * @param hashComparator
+	 *            compares the content of files with the same size (true if the same); null to compare the dates instead.
+	 */
+	public void setHashComparator(BiPredicate<LocalFile, RemoteFile<?>> hashComparator)
+	{
+		this.hashComparator = hashComparator;
+	}
+	
+	/**
+	 * @return the dateTolerance
+	 */
+	public long getDateTolerance()
+	{
+		return dateTolerance;
+	}
+	
+	/**
+	 * @param dateTolerance
+	 *            the maximum difference (ms) between dates considered the same
+	 */
+	public void setDateTolerance(long dateTolerance)
+	{
+		this.dateTolerance = dateTolerance;
+	}
+	
+	/**
+	 * @return the mappingIndex
+	 */
+	public MappingIndex getMappingIndex()
+	{
+		return mappingIndex;
+	}
+	
+	/**
+	 * @param mappingIndex
+	 *            the files recorded as in sync before; a file unchanged on both sides since is the same without comparing
+	 *            its content, and a file changed on one side only is copied over without a conflict. Null to compare
+	 *            all, and resolve every change as a conflict.
+	 */
+	public void setMappingIndex(MappingIndex mappingIndex)
+	{
+		this.mappingIndex = mappingIndex;
+	}
+	
+	/**
+	 * @return the parallelism
+	 */
+	public int getParallelism()
+	{
+		return parallelism;
+	}
+	
+	/**
+	 * @param parallelism
+	 *            the number of folders compared at the same time
+	 */
+	public void setParallelism(int parallelism)
+	{
+		this.parallelism = parallelism;
+	}
+	
+	// ======================================================================================
+	// #endregion Getters and setters.
+	// //////////////////////////////////////////////////////////////////////////////////////
+	
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.sync/SyncPlan.java
+ *
+ *			Modified: 20-Oct-2026 (04:31:12)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.sync;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import com.yagasoft.logger.Logger;
+import com.yagasoft.overcast.base.container.Container;
+import com.yagasoft.overcast.base.container.Folder;
+import com.yagasoft.overcast.base.container.local.LocalFile;
+import com.yagasoft.overcast.base.container.local.LocalFolder;
+import com.yagasoft.overcast.base.container.remote.RemoteFile;
+import com.yagasoft.overcast.base.container.remote.RemoteFolder;
+import com.yagasoft.overcast.base.container.transfer.TransferJob;
+import com.yagasoft.overcast.base.container.transfer.event.ITransferProgressListener;
+import com.yagasoft.overcast.base.container.transfer.event.TransferState;
+import com.yagasoft.overcast.base.csp.CSP;
+import com.yagasoft.overcast.exception.CreationException;
+import com.yagasoft.overcast.exception.OperationException;
+import com.yagasoft.overcast.exception.TransferException;
+
+
+/**
+ * The actions that bring a local tree and a remote tree in sync, as planned by {@link SyncEngine}.<br />
+ * {@link #toString()} lists them (a dry run), and {@link #execute(ITransferProgressListener)} performs them: deletes,
+ * renames and folder creation are done right away, and then all the transfers are queued at once, so the upload and
+ * download queues of the CSP work at the same time.
+ */
+public class SyncPlan
+{
+	
+	/** The actions, ordered by type, then parents first. */
+	protected final List<SyncAction>			actions			= new ArrayList<SyncAction>();
+	
+	/** Local folders that exist on both sides, or are going to be created, mapped by folded relative path. */
+	protected final Map<String, LocalFolder>	localFolders	= new HashMap<String, LocalFolder>();
+	
+	/** Remote folders that exist on both sides, or are going to be created, mapped by folded relative path. */
+	protected final Map<String, RemoteFolder<?>>	remoteFolders	= new HashMap<String, RemoteFolder<?>>();
+	
+	/** Folded relative paths of the entries known to exist on both sides; transfers add to it as they complete. */
+	protected final Set<String>					syncedPaths		= ConcurrentHashMap.newKeySet();
+	
+	/** The transfer jobs queued by the last execution. */
+	protected final List<TransferJob<?>>		jobs			= new ArrayList<TransferJob<?>>();
+	
+	/**
+	 * Instantiates a new sync plan for the roots passed.
+	 *
+	 * @param local
+	 *            the local root
+	 * @param remote
+	 *            the remote root
+	 */
+	public SyncPlan(LocalFolder local, RemoteFolder<?> remote)
+	{
+		mapFolders("", local, remote);
+	}
+	
+	// --------------------------------------------------------------------------------------
+	// #region Planning.
+	
+	/**
+	 * Adds the action passed.
+	 *
+	 * @param action
+	 *            the action
+	 */
+	protected void add(SyncAction action)
+	{
+		actions.add(action);
+	}
+	
+	/**
+	 * Maps the folders at the same relative path on both sides, to be used as the parents of what's created and transferred.
+	 *
+	 * @param path
+	 *            the relative path
+	 * @param local
+	 *            the local folder
+	 * @param remote
+	 *            the remote folder
+	 */
+	protected void mapFolders(String path, LocalFolder local, RemoteFolder<?> remote)
+	{
+		localFolders.put(Container.foldName(path), local);
+		remoteFolders.put(Container.foldName(path), remote);
+	}
+	
+	/**
+	 * Records the path passed as existing on both sides.
+	 *
+	 * @param path
+	 *            the relative path
+	 */
+	protected void addSynced(String path)
+	{
+		syncedPaths.add(Container.foldName(path));
+	}
+	
+	/**
+	 * Orders the actions by type, then parents before children.
+	 */
+	protected void sort()
+	{
+		Collections.sort(actions, Comparator.comparing(SyncAction::getType).thenComparingInt(SyncAction::getDepth));
+	}
+	
+	// #endregion Planning.
+	// --------------------------------------------------------------------------------------
+	
+	// --------------------------------------------------------------------------------------
+	// #region Execution.
+	
+	/**
+	 * Performs the actions in order. An action that fails doesn't stop the rest, except what depends on it (e.g. the
+	 * content of a folder that couldn't be created).
+	 *
+	 * @param listener
+	 *            listens to the transfers queued.
+	 * @return the transfer jobs queued
+	 * @throws OperationException
+	 *             some actions failed; the jobs queued are still available from {@link #getJobs()}
+	 */
+	public List<TransferJob<?>> execute(ITransferProgressListener listener) throws OperationException
+	{
+		Logger.info("OVERCAST: SYNC: executing plan: " + actions.size() + " actions");
+		
+		jobs.clear();
+		List<String> failures = new ArrayList<String>();
+		
+		for (SyncAction action : actions)
+		{
+			try
+			{
+				execute(action, listener);
+			}
+			catch (OperationException | CreationException | TransferException e)
+			{
+				Logger.error("OVERCAST: SYNC: failed: " + action + ", " + e.getMessage());
+				Logger.except(e);
+				
+				failures.add(action + ": " + e.getMessage());
+			}
+		}
+		
+		Logger.info("OVERCAST: SYNC: queued: " + jobs.size() + " transfers, failed: " + failures.size() + " actions");
+		
+		if ( !failures.isEmpty())
+		{
+			throw new OperationException("Failed " + failures.size() + " sync actions! " + failures.get(0));
+		}
+		
+		return new ArrayList<TransferJob<?>>(jobs);
+	}
+	
+	/**
+	 * Performs the action passed. Its target is recorded as synced only once it succeeds: on return for deletes, renames
+	 * and folder creation, and when the job completes for transfers.
+	 */
+	protected void execute(SyncAction action, ITransferProgressListener listener)
+			throws OperationException, CreationException, TransferException
+	{
+		Container<?> container = action.getContainer();
+		String path = getTargetPath(action);
+		
+		switch (action.getType())
+		{
+			case DELETE_LOCAL:
+			case DELETE_REMOTE:
+				container.delete();
+				syncedPaths.remove(Container.foldName(path));
+				return;
+			
+			case RENAME_LOCAL:
+			case RENAME_REMOTE:
+				container.rename(action.getNewName());
+				break;
+			
+			case CREATE_LOCAL:
+				LocalFolder localParent = getParent(localFolders, action);
+				LocalFolder localFolder = new LocalFolder(localParent.getSourceObject().resolve(container.getName()));
+				localFolder.create(localParent);
+				localParent.add(localFolder);
+				localFolders.put(Container.foldName(action.getPath()), localFolder);
+				break;
+			
+			case CREATE_REMOTE:
+				RemoteFolder<?> remoteParent = getParent(remoteFolders, action);
+				RemoteFolder<?> remoteFolder = remoteParent.getCsp().getAbstractFactory().createFolder();
+				remoteFolder.setName(container.getName());
+				remoteFolder.create(remoteParent);
+				remoteFolders.put(Container.foldName(action.getPath()), remoteFolder);
+				break;
+			
+			case UPLOAD:
+				RemoteFolder<?> uploadParent = getParent(remoteFolders, action);
+				jobs.add(uploadParent.getCsp().upload((LocalFile) container, uploadParent, action.isOverwrite()
+						, trackCompletion(path, listener)));
+				return;
+			
+			case DOWNLOAD:
+				LocalFolder downloadParent = getParent(localFolders, action);
+				RemoteFile<?> remoteFile = (RemoteFile<?>) container;
+				CSP<?, ?, ?> csp = remoteFile.getCsp();
+				jobs.add(csp.download(remoteFile, downloadParent, action.isOverwrite(), trackCompletion(path, listener)));
+				return;
+			
+			case SKIP:
+				Logger.info("OVERCAST: SYNC: skipped conflict: " + action.getPath());
+				return;
+		}
+		
+		addSynced(path);
+	}
+	
+	/**
+	 * Wraps the listener passed (can be null) with one that records the path as synced when the transfer completes.
+	 */
+	protected ITransferProgressListener trackCompletion(String path, ITransferProgressListener listener)
+	{
+		return event ->
+		{
+			if (event.getState() == TransferState.COMPLETED)
+			{
+				addSynced(path);
+			}
+			
+			if (listener != null)
+			{
+				listener.transferProgressChanged(event);
+			}
+		};
+	}
+	
+	/**
+	 * Gets the relative path of the action's target after it's performed (the new name for renames).
+	 */
+	protected static String getTargetPath(SyncAction action)
+	{
+		if (action.getNewName() == null)
+		{
+			return action.getPath();
+		}
+		
+		return action.getParentPath().isEmpty() ? action.getNewName() : (action.getParentPath() + "/" + action.getNewName());
+	}
+	
+	/**
+	 * Gets the parent folder of the action's target from the map passed.
+	 */
+	protected <F extends Folder<?>> F getParent(Map<String, F> folders, SyncAction action) throws OperationException
+	{
+		F parent = folders.get(Container.foldName(action.getParentPath()));
+		
+		if (parent == null)
+		{
+			throw new OperationException("Parent folder is missing: " + action.getParentPath());
+		}
+		
+		return parent;
+	}
+	
+	// #endregion Execution.
+	// --------------------------------------------------------------------------------------
+	
+	/**
+	 * Checks if there's nothing to do.
+	 *
+	 * @return true, if empty
+	 */
+	public boolean isEmpty()
+	{
+		return actions.stream().allMatch(action -> action.getType() == SyncActionType.SKIP);
+	}
+	
+	/**
+	 * Lists the actions, one per line, after a summary of their count by type (a dry run).
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		Map<SyncActionType, Long> counts = actions.stream()
+				.collect(Collectors.groupingBy(SyncAction::getType
+						, () -> new EnumMap<SyncActionType, Long>(SyncActionType.class), Collectors.counting()));
+		
+		StringBuilder builder = new StringBuilder("Sync plan: " + actions.size() + " actions " + counts);
+		
+		actions.forEach(action -> builder.append(System.lineSeparator()).append(action));
+		
+		return builder.toString();
+	}
+	
+	// //////////////////////////////////////////////////////////////////////////////////////
+	// #region Getters.
+	// ======================================================================================
+	
+	/**
+	 * @return the actions, in the order they're executed
+	 */
+	public List<SyncAction> getActions()
+	{
+		return Collections.unmodifiableList(actions);
+	}
+	
+	/**
+	 * @param type
+	 *            the type
+	 * @return the actions of the type passed
+	 */
+	public List<SyncAction> getActions(SyncActionType type)
+	{
+		return actions.stream()
+				.filter(action -> action.getType() == type)
+				.collect(Collectors.toList());
+	}
+	
+	/**
+	 * Gets the folded relative paths of the entries known to exist on both sides: those found so when planning, plus the
+	 * targets of the actions that succeeded; a transfer is only added when its job completes, so read this after the jobs
+	 * are done. Pass them as the baseline of the next sync (see {@link SyncEngine#setBaseline(Set)}) so it can tell
+	 * deletions from new entries; an entry whose action failed is left out, so it's never taken as deleted.
+	 *
+	 * @return the synced paths
+	 */
+	public Set<String> getSyncedPaths()
+	{
+		return Collections.unmodifiableSet(syncedPaths);
+	}
+	
+	/**
+	 * @return the transfer jobs queued by the last execution
+	 */
+	public List<TransferJob<?>> getJobs()
+	{
+		return Collections.unmodifiableList(jobs);
+	}
+	
+	// ======================================================================================
+	// #endregion Getters.
+	// //////////////////////////////////////////////////////////////////////////////////////
+	
+}
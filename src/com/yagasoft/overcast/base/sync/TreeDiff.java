@@ -0,0 +1,420 @@
+/*
+ * Copyright (C) 2011-2014 by Ahmed Osama el-Sawalhy
+ *
+ *		The Modified MIT Licence (GPL v3 compatible)
+ * 			Licence terms are in a separate file (LICENCE.md)
+ *
+ *		Project/File: Overcast/com.yagasoft.overcast.base.sync/TreeDiff.java
+ *
+ *			Modified: 19-Oct-2026 (23:04:55)
+ *			   Using: Eclipse J-EE / JDK 8 / Windows 8.1 x64
+ */
+
+package com.yagasoft.overcast.base.sync;
+
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiPredicate;
+
+import com.yagasoft.logger.Logger;
+import com.yagasoft.overcast.base.cache.MappingIndex;
+import com.yagasoft.overcast.base.container.Container;
+import com.yagasoft.overcast.base.container.Folder;
+import com.yagasoft.overcast.base.container.local.LocalFile;
+import com.yagasoft.overcast.base.container.local.LocalFolder;
+import com.yagasoft.overcast.base.container.remote.RemoteFile;
+import com.yagasoft.overcast.base.container.remote.RemoteFolder;
+import com.yagasoft.overcast.exception.OperationException;
+
+
+/**
+ * Compares a local tree with a remote one, matching entries by name (ignoring case, see
+ * {@link Container#foldName(String)}), and classifies each as {@link DiffState#ONLY_LOCAL}, {@link DiffState#ONLY_REMOTE},
+ * {@link DiffState#SAME} or {@link DiffState#CHANGED}.<br />
+ * Sub-trees are compared in parallel; folders are listed as they're reached if they weren't already loaded. Entries are
+ * passed to the listeners as soon as they're classified.<br />
+ * <br />
+ * Files are changed if their sizes differ. If the sizes are the same, they're the same if the mapping index set has them
+ * in sync and unchanged since; else, the hash comparator decides if set; else, the dates are compared, within the
+ * tolerance set. A folder found on both sides is changed if anything in its sub-tree is; it's reported after its content.
+ * A folder on one side only is reported once, and its content isn't walked.
+ */
+public class TreeDiff
+{
+	
+	/** Local root. */
+	protected final LocalFolder							local;
+	
+	/** Remote root. */
+	protected final RemoteFolder<?>						remote;
+	
+	/** Listeners to the entries compared. */
+	protected final List<IDiffListener>					listeners	= new CopyOnWriteArrayList<IDiffListener>();
+	
+	/** Compares the content of files with the same size; null to compare the dates instead. */
+	protected BiPredicate<LocalFile, RemoteFile<?>>	hashComparator;
+	
+	/** Maximum difference (ms) between dates considered the same, as some servers round them. */
+	protected long										dateTolerance	= 2000;
+	
+	/** Files recorded as in sync before, to skip comparing them; null to compare all. */
+	protected MappingIndex								mappingIndex;
+	
+	/** Number of folders compared at the same time. */
+	protected int										parallelism		= 8;
+	
+	/**
+	 * Instantiates a new tree diff.
+	 *
+	 * @param local
+	 *            the local root
+	 * @param remote
+	 *            the remote root
+	 */
+	public TreeDiff(LocalFolder local, RemoteFolder<?> remote)
+	{
+		this.local = local;
+		this.remote = remote;
+	}
+	
+	/**
+	 * Compares the trees, passing each entry to the listeners as it's classified.
+	 *
+	 * @return all the entries compared, excluding the roots
+	 * @throws OperationException
+	 *             a folder couldn't be listed
+	 */
+	public List<DiffEntry> compare() throws OperationException
+	{
+		Logger.info("OVERCAST: TREEDIFF: comparing: " + local.getPath() + ", with: " + remote.getPath());
+		
+		Queue<DiffEntry> entries = new ConcurrentLinkedQueue<DiffEntry>();
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		
+		try
+		{
+			pool.invoke(new FolderTask("", local, remote, entries));
+		}
+		catch (RuntimeException e)
+		{
+			Logger.error("OVERCAST: TREEDIFF: failed: " + local.getPath() + ", " + e.getMessage());
+			Logger.except(e);
+			
+			throw new OperationException("Failed to compare trees! " + e.getMessage());
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+		
+		Logger.info("OVERCAST: TREEDIFF: compared: " + entries.size() + " entries");
+		
+		return new ArrayList<DiffEntry>(entries);
+	}
+	
+	/**
+	 * Compares two files with the same name.
+	 *
+	 * @param localFile
+	 *            the local file
+	 * @param remoteFile
+	 *            the remote file
+	 * @return the state
+	 */
+	protected DiffState compareFiles(LocalFile localFile, RemoteFile<?> remoteFile)
+	{
+		if (localFile.getSize() != remoteFile.getSize())
+		{
+			return DiffState.CHANGED;
+		}
+		
+		if ((mappingIndex != null) && mappingIndex.isInSync(localFile, remoteFile))
+		{
+			return DiffState.SAME;
+		}
+		
+		if (hashComparator != null)
+		{
+			return hashComparator.test(localFile, remoteFile) ? DiffState.SAME : DiffState.CHANGED;
+		}
+		
+		return (Math.abs(localFile.getDate() - remoteFile.getDate()) <= dateTolerance) ? DiffState.SAME : DiffState.CHANGED;
+	}
+	
+	/**
+	 * Records the entry, and notifies the listeners.
+	 */
+	protected void report(DiffEntry entry, Queue<DiffEntry> entries)
+	{
+		entries.add(entry);
+		listeners.forEach(listener -> listener.entryCompared(entry));
+	}
+	
+	/**
+	 * Groups the children of the folder passed by their folded name, after loading them if needed.
+	 */
+	protected static Map<String, List<Container<?>>> children(Folder<?> folder)
+	{
+		try
+		{
+			folder.loadChildren();
+		}
+		catch (OperationException e)
+		{
+			throw new RuntimeException("Couldn't list: " + folder.getPath() + ", " + e.getMessage());
+		}
+		
+		Map<String, List<Container<?>>> children = new LinkedHashMap<String, List<Container<?>>>();
+		
+		for (Container<?> child : folder.getChildrenList())
+		{
+			children.computeIfAbsent(Container.foldName(child.getName()), name -> new ArrayList<Container<?>>(1)).add(child);
+		}
+		
+		return children;
+	}
+	
+	/**
+	 * Compares a local folder with a remote one, forking a task for each pair of sub-folders.
+	 * Returns true if anything in the sub-tree differs.
+	 */
+	protected class FolderTask extends RecursiveTask<Boolean>
+	{
+		
+		private static final long		serialVersionUID	= -5907402384925130683L;
+		
+		private final String			path;
+		private final Folder<?>			localFolder;
+		private final Folder<?>			remoteFolder;
+		private final Queue<DiffEntry>	entries;
+		
+		protected FolderTask(String path, Folder<?> localFolder, Folder<?> remoteFolder, Queue<DiffEntry> entries)
+		{
+			this.path = path;
+			this.localFolder = localFolder;
+			this.remoteFolder = remoteFolder;
+			this.entries = entries;
+		}
+		
+		@Override
+		protected Boolean compute()
+		{
+			Map<String, List<Container<?>>> localChildren = children(localFolder);
+			Map<String, List<Container<?>>> remoteChildren = children(remoteFolder);
+			
+			List<FolderTask> tasks = new ArrayList<FolderTask>();
+			boolean changed = false;
+			
+			for (Map.Entry<String, List<Container<?>>> entry : localChildren.entrySet())
+			{
+				List<Container<?>> locals = entry.getValue();
+				List<Container<?>> remotes = remoteChildren.remove(entry.getKey());
+				
+				for (Container<?> localChild : locals)
+				{
+					Container<?> remoteChild = take(remotes, localChild.isFolder());
+					String childPath = path.isEmpty() ? localChild.getName() : (path + "/" + localChild.getName());
+					
+					if (remoteChild == null)
+					{
+						report(new DiffEntry(childPath, localChild, null, DiffState.ONLY_LOCAL), entries);
+						changed = true;
+					}
+					else if (localChild.isFolder())
+					{
+						tasks.add(new FolderTask(childPath, (Folder<?>) localChild, (Folder<?>) remoteChild, entries));
+					}
+					else
+					{
+						DiffState state = compareFiles((LocalFile) localChild, (RemoteFile<?>) remoteChild);
+						report(new DiffEntry(childPath, localChild, remoteChild, state), entries);
+						changed |= (state != DiffState.SAME);
+					}
+				}
+				
+				// left without a match of the same type.
+				if (remotes != null)
+				{
+					remoteChildren.put(entry.getKey(), remotes);
+				}
+			}
+			
+			for (List<Container<?>> remotes : remoteChildren.values())
+			{
+				for (Container<?> remoteChild : remotes)
+				{
+					String childPath = path.isEmpty() ? remoteChild.getName() : (path + "/" + remoteChild.getName());
+					report(new DiffEntry(childPath, null, remoteChild, DiffState.ONLY_REMOTE), entries);
+					changed = true;
+				}
+			}
+			
+			for (FolderTask task : invokeAll(tasks))
+			{
+				boolean folderChanged = task.join();
+				report(new DiffEntry(task.path, task.localFolder, task.remoteFolder
+						, folderChanged ? DiffState.CHANGED : DiffState.SAME), entries);
+				changed |= folderChanged;
+			}
+			
+			return changed;
+		}
+		
+		/**
+		 * Removes the first container of the type passed from the list, and returns it.
+		 */
+		private Container<?> take(List<Container<?>> containers, boolean folder)
+		{
+			if (containers == null)
+			{
+				return null;
+			}
+			
+			for (int i = 0; i < containers.size(); i++)
+			{
+				if (containers.get(i).isFolder() == folder)
+				{
+					return containers.remove(i);
+				}
+			}
+			
+			return null;
+		}
+	}
+	
+	// --------------------------------------------------------------------------------------
+	// #region Listeners.
+	
+	/**
+	 * Adds a listener to the entries compared.
+	 *
+	 * @param listener
+	 *            the listener
+	 */
+	public void addListener(IDiffListener listener)
+	{
+		listeners.add(listener);
+	}
+	
+	/**
+	 * Removes the listener.
+	 *
+	 * @param listener
+	 *            the listener
+	 */
+	public void removeListener(IDiffListener listener)
+	{
+		listeners.remove(listener);
+	}
+	
+	// #endregion Listeners.
+	// --------------------------------------------------------------------------------------
+	
+	// //////////////////////////////////////////////////////////////////////////////////////
+	// #region Getters and setters.
+	// ======================================================================================
+	
+	/**
+	 * @return the local root
+	 */
+	public LocalFolder getLocal()
+	{
+		return local;
+	}
+	
+	/**
+	 * @return the remote root
+	 */
+	public RemoteFolder<?> getRemote()
+	{
+		return remote;
+	}
+	
+	/**
+	 * @return the hashComparator
+	 */
+	public BiPredicate<LocalFile, RemoteFile<?>> getHashComparator()
+	{
+		return hashComparator;
+	}
+	
+	/**
+	 * @param hashComparator
+	 *            compares the content of files with the same size (true if the same), e.g. using the hash the server
+	 *            keeps; null to compare the dates instead.
+	 */
+	public void setHashComparator(BiPredicate<LocalFile, RemoteFile<?>> hashComparator)
+	{
+		this.hashComparator = hashComparator;
+	}
+	
+	/**
+	 * @return the dateTolerance
+	 */
+	public long getDateTolerance()
+	{
+		return dateTolerance;
+	}
+	
+	/**
+	 * @param dateTolerance
+	 *            the maximum difference (ms) between dates considered the same
+	 */
+	public void setDateTolerance(long dateTolerance)
+	{
+		this.dateTolerance = dateTolerance;
+	}
+	
+	/**
+	 * @return the mappingIndex
+	 */
+	public MappingIndex getMappingIndex()
+	{
+		return mappingIndex;
+	}
+	
+	/**
+	 * @param mappingIndex
+	 *            the files recorded as in sync before; a file unchanged on both sides since is the same without comparing
+	 *            its content. Null to compare all.
+	 */
+	public void setMappingIndex(MappingIndex mappingIndex)
+	{
+		this.mappingIndex = mappingIndex;
+	}
+	
+	/**
+	 * @return the parallelism
+	 */
+	public int getParallelism()
+	{
+		return parallelism;
+	}
+	
+	/**
+	 * @param parallelism
+	 *            the number of folders compared at the same time
+	 */
+	public void setParallelism(int parallelism)
+	{
+		if (parallelism < 1)
+		{
+			throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		}
+		
+		this.parallelism = parallelism;
+	}
+	
+	// ======================================================================================
+	// #endregion Getters and setters.
+	// //////////////////////////////////////////////////////////////////////////////////////
+	
+}